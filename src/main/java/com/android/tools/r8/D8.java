@@ -55,7 +55,7 @@ import java.util.concurrent.ExecutorService;
  */
 public final class D8 {
 
-  private static final String VERSION = "v0.1.0";
+  static final String VERSION = "v0.1.0";
   private static final int STATUS_ERROR = 1;
 
   private D8() {}
@@ -67,14 +67,12 @@ public final class D8 {
    * @return the compilation result.
    */
   public static D8Output run(D8Command command) throws IOException, CompilationException {
-    InternalOptions options = command.getInternalOptions();
-    CompilationResult result = runForTesting(command.getInputApp(), options);
-    assert result != null;
-    D8Output output = new D8Output(result.androidApp, command.getOutputMode());
-    if (command.getOutputPath() != null) {
-      output.write(command.getOutputPath());
+    ExecutorService executor = ThreadUtils.getExecutorService(command.getInternalOptions());
+    try {
+      return run(command, executor);
+    } finally {
+      executor.shutdown();
     }
-    return output;
   }
 
   /**
@@ -93,9 +91,10 @@ public final class D8 {
     CompilationResult result = runForTesting(
         command.getInputApp(), options, executor);
     assert result != null;
-    D8Output output = new D8Output(result.androidApp, command.getOutputMode());
+    D8Output output =
+        new D8Output(result.androidApp, command.getOutputMode(), !options.intermediate);
     if (command.getOutputPath() != null) {
-      output.write(command.getOutputPath());
+      output.write(command.getOutputPath(), executor);
     }
     return output;
   }
@@ -196,6 +195,9 @@ public final class D8 {
                   .write(null, executor),
               app,
               appInfo);
+      if (options.lambdaClassCache != null) {
+        options.lambdaClassCache.store(output.androidApp);
+      }
 
       options.printWarnings();
       return output;
@@ -5,6 +5,7 @@ package com.android.tools.r8;
 
 import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.ir.desugar.LambdaClassCache;
 import com.android.tools.r8.utils.AndroidApp;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.OffOrAuto;
@@ -35,6 +36,7 @@ public class D8Command extends BaseCommand {
   public static class Builder extends BaseCommand.Builder<D8Command, Builder> {
 
     private boolean intermediate = false;
+    private Path lambdaClassCache = null;
 
     protected Builder(boolean ignoreDexInArchive) {
       super(CompilationMode.DEBUG, ignoreDexInArchive);
@@ -70,6 +72,18 @@ public class D8Command extends BaseCommand {
       return self();
     }
 
+    /**
+     * Set a directory in which lambda classes are kept for later compilations.
+     *
+     * <p>Lambda classes which do not depend on the class using them are read from the directory
+     * instead of being synthesized again. New ones are added to it when producing a dex file per
+     * class.
+     */
+    public Builder setLambdaClassCache(Path directory) {
+      this.lambdaClassCache = directory;
+      return self();
+    }
+
     @Override
     Builder self() {
       return this;
@@ -99,7 +113,8 @@ public class D8Command extends BaseCommand {
           getOutputMode(),
           getMode(),
           getMinApiLevel(),
-          intermediate);
+          intermediate,
+          lambdaClassCache);
     }
   }
 
@@ -115,13 +130,17 @@ public class D8Command extends BaseCommand {
       "  --classpath <file>      # Add <file> as a classpath resource.",
       "  --min-api               # Minimum Android API level compatibility",
       "  --intermediate          # Compile an intermediate result intended for later",
-      "                          # merging.",
+      "                          # merging. Dex files in a zip output are stored",
+      "                          # uncompressed.",
       "  --file-per-class        # Produce a separate dex file per class",
       "  --main-dex-list <file>  # List of classes to place in the primary dex file.",
+      "  --lambda-cache <dir>    # Reuse lambda classes kept in <dir> by earlier runs,",
+      "                          # and keep new ones there with --file-per-class.",
       "  --version               # Print the version of d8.",
       "  --help                  # Print this message."));
 
   private boolean intermediate = false;
+  private Path lambdaClassCache = null;
 
   public static Builder builder() {
     return new Builder();
@@ -172,6 +191,8 @@ public class D8Command extends BaseCommand {
           builder.addClasspathFiles(Paths.get(args[++i]));
         } else if (arg.equals("--main-dex-list")) {
           builder.addMainDexListFiles(Paths.get(args[++i]));
+        } else if (arg.equals("--lambda-cache")) {
+          builder.setLambdaClassCache(Paths.get(args[++i]));
         } else if (arg.equals("--min-api")) {
           builder.setMinApiLevel(Integer.valueOf(args[++i]));
         } else if (arg.equals("--intermediate")) {
@@ -195,9 +216,11 @@ public class D8Command extends BaseCommand {
       OutputMode outputMode,
       CompilationMode mode,
       int minApiLevel,
-      boolean intermediate) {
+      boolean intermediate,
+      Path lambdaClassCache) {
     super(inputApp, outputPath, outputMode, mode, minApiLevel);
     this.intermediate = intermediate;
+    this.lambdaClassCache = lambdaClassCache;
   }
 
   private D8Command(boolean printHelp, boolean printVersion) {
@@ -226,6 +249,9 @@ public class D8Command extends BaseCommand {
     assert internal.outline.enabled;
     internal.outline.enabled = false;
     internal.outputMode = getOutputMode();
+    if (lambdaClassCache != null) {
+      internal.lambdaClassCache = new LambdaClassCache(lambdaClassCache, D8.VERSION, internal);
+    }
     return internal;
   }
 }
@@ -7,16 +7,24 @@ import com.android.tools.r8.utils.AndroidApp;
 import com.android.tools.r8.utils.OutputMode;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
 
 /** Represents the output of a D8 compilation. */
 public class D8Output extends BaseOutput {
 
-  D8Output(AndroidApp app, OutputMode outputMode) {
+  private final boolean compressArchive;
+
+  D8Output(AndroidApp app, OutputMode outputMode, boolean compressArchive) {
     super(app, outputMode);
+    this.compressArchive = compressArchive;
   }
 
   @Override
   public void write(Path output) throws IOException {
-    getAndroidApp().write(output, getOutputMode());
+    write(output, null);
+  }
+
+  void write(Path output, ExecutorService executor) throws IOException {
+    getAndroidApp().write(output, getOutputMode(), compressArchive, executor);
   }
 }
@@ -32,6 +32,7 @@ import com.android.tools.r8.shaking.AnnotationRemover;
 import com.android.tools.r8.shaking.DiscardedChecker;
 import com.android.tools.r8.shaking.Enqueuer;
 import com.android.tools.r8.shaking.MainDexListBuilder;
+import com.android.tools.r8.shaking.ProguardConfiguration;
 import com.android.tools.r8.shaking.ProguardRuleParserException;
 import com.android.tools.r8.shaking.ProguardTypeMatcher;
 import com.android.tools.r8.shaking.ProguardTypeMatcher.MatchSpecificType;
@@ -50,6 +51,7 @@ import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Closer;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -62,8 +64,11 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -263,11 +268,17 @@ public class R8 {
         enqueuer.addExtension(new ProtoLiteExtension(appInfo));
         appInfo = enqueuer.traceApplication(rootSet, timing);
         if (options.proguardConfiguration.isPrintSeeds()) {
-          ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-          PrintStream out = new PrintStream(bytes);
+          ByteArrayOutputStream bytes =
+              options.seedsOutput == null ? new ByteArrayOutputStream() : null;
+          PrintStream out = new PrintStream(bytes == null ? options.seedsOutput : bytes);
           RootSetBuilder.writeSeeds(appInfo.withLiveness().pinnedItems, out);
           out.flush();
-          proguardSeedsData = bytes.toByteArray();
+          if (out.checkError()) {
+            throw new IOException("Failed to write the seeds report");
+          }
+          if (bytes != null) {
+            proguardSeedsData = bytes.toByteArray();
+          }
         }
         if (options.useTreeShaking) {
           application = new TreePruner(application, appInfo.withLiveness(), options).run();
@@ -356,7 +367,8 @@ public class R8 {
       NamingLens namingLens =
           options.skipMinification
               ? NamingLens.getIdentityLens()
-              : new Minifier(appInfo.withLiveness(), rootSet, options).run(timing);
+              : new Minifier(appInfo.withLiveness(), rootSet, options)
+                  .run(timing, executorService);
       timing.end();
 
       // If a method filter is present don't produce output since the application is likely partial.
@@ -451,8 +463,13 @@ public class R8 {
 
   static void writeOutputs(R8Command command, InternalOptions options, AndroidApp outputApp)
       throws IOException {
+    writeOutputs(command, options, outputApp, null);
+  }
+
+  static void writeOutputs(R8Command command, InternalOptions options, AndroidApp outputApp,
+      ExecutorService executor) throws IOException {
     if (command.getOutputPath() != null) {
-      outputApp.write(command.getOutputPath(), options.outputMode);
+      outputApp.write(command.getOutputPath(), options.outputMode, true, executor);
     }
 
     if (options.proguardConfiguration.isPrintMapping() && !options.skipMinification) {
@@ -466,7 +483,7 @@ public class R8 {
         outputApp.writeProguardMap(mapOut);
       }
     }
-    if (options.proguardConfiguration.isPrintSeeds()) {
+    if (options.proguardConfiguration.isPrintSeeds() && options.seedsOutput == null) {
       assert outputApp.hasProguardSeeds();
       try (Closer closer = Closer.create()) {
         OutputStream seedsOut = FileUtils.openPathWithDefault(
@@ -488,7 +505,9 @@ public class R8 {
         outputApp.writeMainDexList(closer, mainDexOut);
       }
     }
-    if (options.proguardConfiguration.isPrintUsage() && outputApp.hasDeadCode()) {
+    if (options.proguardConfiguration.isPrintUsage()
+        && options.usageOutput == null
+        && outputApp.hasDeadCode()) {
       try (Closer closer = Closer.create()) {
         OutputStream deadCodeOut = FileUtils.openPathWithDefault(
             closer,
@@ -513,10 +532,71 @@ public class R8 {
   public static AndroidApp run(R8Command command, ExecutorService executor)
       throws IOException, CompilationException, ProguardRuleParserException {
     InternalOptions options = command.getInternalOptions();
-    AndroidApp outputApp =
-        runForTesting(command.getInputApp(), options, executor).androidApp;
-    writeOutputs(command, options, outputApp);
-    return outputApp;
+    try (Closer closer = Closer.create()) {
+      List<ReportFile> reports = openReportOutputs(options, closer);
+      AndroidApp outputApp =
+          runForTesting(command.getInputApp(), options, executor).androidApp;
+      writeOutputs(command, options, outputApp, executor);
+      for (ReportFile report : reports) {
+        report.commit();
+      }
+      return outputApp;
+    }
+  }
+
+  // Reports that go to a file are written while they are produced. They can be large, and are
+  // not needed for the rest of the compilation. An existing report file is only replaced once
+  // the compilation has succeeded.
+  private static List<ReportFile> openReportOutputs(InternalOptions options, Closer closer)
+      throws IOException {
+    ProguardConfiguration configuration = options.proguardConfiguration;
+    List<ReportFile> reports = new ArrayList<>();
+    if (configuration.isPrintSeeds() && configuration.getSeedFile() != null) {
+      ReportFile seeds = ReportFile.open(closer, configuration.getSeedFile());
+      options.seedsOutput = seeds.output;
+      reports.add(seeds);
+    }
+    if (configuration.isPrintUsage()
+        && configuration.getPrintUsageFile() != null
+        && options.useTreeShaking) {
+      ReportFile usage = ReportFile.open(closer, configuration.getPrintUsageFile());
+      options.usageOutput = usage.output;
+      reports.add(usage);
+    }
+    return reports;
+  }
+
+  /**
+   * A report written to a temporary file next to the report file, which is moved to the report
+   * file on {@link #commit()}. The temporary file is deleted if it is not committed.
+   */
+  private static class ReportFile {
+
+    private final Path file;
+    private final Path temporaryFile;
+    private final OutputStream output;
+
+    private ReportFile(Path file, Path temporaryFile, OutputStream output) {
+      this.file = file;
+      this.temporaryFile = temporaryFile;
+      this.output = output;
+    }
+
+    static ReportFile open(Closer closer, Path file) throws IOException {
+      Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+      // Registered before the stream, so the stream is closed before the file is deleted.
+      closer.register(() -> Files.deleteIfExists(temporaryFile));
+      OutputStream output = new BufferedOutputStream(FileUtils.openPathWithDefault(
+          closer, temporaryFile, null,
+          StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
+      return new ReportFile(file, temporaryFile, output);
+    }
+
+    void commit() throws IOException {
+      // Closing flushes the buffered report, and fails if it cannot be written.
+      output.close();
+      Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
   }
 
   private static void run(String[] args)
@@ -0,0 +1,466 @@
+// Copyright (c) 2017, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.code;
+
+import com.android.tools.r8.dex.Constants;
+import com.android.tools.r8.dex.IndexedItemCollection;
+import com.android.tools.r8.graph.DexCallSite;
+import com.android.tools.r8.graph.DexField;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexMethodHandle;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DexProto;
+import com.android.tools.r8.graph.DexString;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.IndexedDexItem;
+import com.android.tools.r8.graph.ObjectToOffsetMapping;
+import com.android.tools.r8.graph.OffsetToObjectMapping;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The instructions of a code item as read from a dex file, together with the index tables of
+ * that file.
+ *
+ * <p>Code that is passed through unchanged only needs the size of each instruction and the
+ * location of its index operands. That is enough to collect the referenced items, and to write
+ * the code units with the indices remapped to the output file, without creating
+ * {@link Instruction} objects.
+ *
+ * <p>Built code is encoded the same way, with tables that only hold the items referenced by the
+ * code itself. See {@link #encode(Instruction[])}.
+ */
+public class EncodedInstructions {
+
+  // Kinds of the index operand(s) of an opcode.
+  private static final byte NONE = 0;
+  private static final byte STRING = 1;
+  private static final byte STRING_JUMBO = 2;
+  private static final byte TYPE = 3;
+  private static final byte FIELD = 4;
+  private static final byte METHOD = 5;
+  private static final byte METHOD_AND_PROTO = 6;
+  private static final byte CALL_SITE = 7;
+
+  // Size in code units per opcode, zero for unused opcodes.
+  private static final byte[] SIZES = new byte[256];
+  private static final byte[] REFERENCES = new byte[256];
+
+  static {
+    setSize(0x00, 0x01, 1);  // nop, move
+    setSize(0x02, 0x02, 2);  // move/from16
+    setSize(0x03, 0x03, 3);  // move/16
+    setSize(0x04, 0x04, 1);  // move-wide
+    setSize(0x05, 0x05, 2);  // move-wide/from16
+    setSize(0x06, 0x06, 3);  // move-wide/16
+    setSize(0x07, 0x07, 1);  // move-object
+    setSize(0x08, 0x08, 2);  // move-object/from16
+    setSize(0x09, 0x09, 3);  // move-object/16
+    setSize(0x0a, 0x12, 1);  // move-result*, move-exception, return*, const/4
+    setSize(0x13, 0x13, 2);  // const/16
+    setSize(0x14, 0x14, 3);  // const
+    setSize(0x15, 0x16, 2);  // const/high16, const-wide/16
+    setSize(0x17, 0x17, 3);  // const-wide/32
+    setSize(0x18, 0x18, 5);  // const-wide
+    setSize(0x19, 0x19, 2);  // const-wide/high16
+    setReferences(0x1a, 0x1a, 2, STRING);  // const-string
+    setReferences(0x1b, 0x1b, 3, STRING_JUMBO);  // const-string/jumbo
+    setReferences(0x1c, 0x1c, 2, TYPE);  // const-class
+    setSize(0x1d, 0x1e, 1);  // monitor-enter, monitor-exit
+    setReferences(0x1f, 0x20, 2, TYPE);  // check-cast, instance-of
+    setSize(0x21, 0x21, 1);  // array-length
+    setReferences(0x22, 0x23, 2, TYPE);  // new-instance, new-array
+    setReferences(0x24, 0x25, 3, TYPE);  // filled-new-array, filled-new-array/range
+    setSize(0x26, 0x26, 3);  // fill-array-data
+    setSize(0x27, 0x28, 1);  // throw, goto
+    setSize(0x29, 0x29, 2);  // goto/16
+    setSize(0x2a, 0x2c, 3);  // goto/32, packed-switch, sparse-switch
+    setSize(0x2d, 0x3d, 2);  // cmp*, if-*
+    setSize(0x44, 0x51, 2);  // aget*, aput*
+    setReferences(0x52, 0x6d, 2, FIELD);  // iget*, iput*, sget*, sput*
+    setReferences(0x6e, 0x72, 3, METHOD);  // invoke-*
+    setReferences(0x74, 0x78, 3, METHOD);  // invoke-*/range
+    setSize(0x7b, 0x8f, 1);  // unary operations
+    setSize(0x90, 0xaf, 2);  // binary operations
+    setSize(0xb0, 0xcf, 1);  // binary operations, 2addr
+    setSize(0xd0, 0xe2, 2);  // binary operations, lit16 and lit8
+    setReferences(0xfa, 0xfb, 4, METHOD_AND_PROTO);  // invoke-polymorphic*
+    setReferences(0xfc, 0xfd, 3, CALL_SITE);  // invoke-custom*
+  }
+
+  private static void setSize(int firstOpcode, int lastOpcode, int size) {
+    setReferences(firstOpcode, lastOpcode, size, NONE);
+  }
+
+  private static void setReferences(int firstOpcode, int lastOpcode, int size, byte references) {
+    for (int opcode = firstOpcode; opcode <= lastOpcode; opcode++) {
+      SIZES[opcode] = (byte) size;
+      REFERENCES[opcode] = references;
+    }
+  }
+
+  private final short[] code;
+  private final OffsetToObjectMapping items;
+  // Whether the tables only hold the items of this code, in an order determined by the code.
+  private final boolean codeLocalItems;
+
+  public EncodedInstructions(short[] code, OffsetToObjectMapping items) {
+    this(code, items, false);
+  }
+
+  private EncodedInstructions(short[] code, OffsetToObjectMapping items, boolean codeLocalItems) {
+    this.code = code;
+    this.items = items;
+    this.codeLocalItems = codeLocalItems;
+  }
+
+  /**
+   * Encodes built instructions with index tables of their own.
+   *
+   * <p>The items are numbered in the order they are first referenced, except for the strings,
+   * which are sorted. No file indices are assigned to the items, so the encoding can be done at
+   * any time. Equal instructions always result in equal encodings.
+   *
+   * @return the encoded instructions, or null if the code references more items than a 16-bit
+   *     index can address
+   */
+  public static EncodedInstructions encode(Instruction[] instructions) {
+    CodeLocalItems items = new CodeLocalItems();
+    int size = 0;
+    for (Instruction instruction : instructions) {
+      instruction.collectIndexedItems(items);
+      size += instruction.getSize();
+    }
+    if (items.size() > Constants.MAX_NON_JUMBO_INDEX + 1) {
+      return null;
+    }
+    OffsetToObjectMapping table = items.createTable();
+    ShortBuffer code = ShortBuffer.allocate(size);
+    for (Instruction instruction : instructions) {
+      instruction.write(code, items);
+    }
+    assert !code.hasRemaining();
+    return new EncodedInstructions(code.array(), table, true);
+  }
+
+  public Instruction[] decode(InstructionFactory factory) {
+    return factory.readSequenceFrom(ShortBuffer.wrap(code), 0, code.length, items);
+  }
+
+  /** Size of the instruction stream in 16-bit code units. */
+  public int size() {
+    return code.length;
+  }
+
+  /** Number of instructions, counting each payload as one instruction. */
+  public int instructionCount() {
+    int count = 0;
+    for (int offset = 0; offset < code.length; offset += sizeAt(offset)) {
+      count++;
+    }
+    return count;
+  }
+
+  /** Whether this is built code encoded by {@link #encode(Instruction[])}. */
+  public boolean hasCodeLocalItems() {
+    return codeLocalItems;
+  }
+
+  /**
+   * Compares two encodings of built code. As both are encoded from their instructions in the
+   * same way, they are equal exactly when the instructions are.
+   */
+  public boolean contentEquals(EncodedInstructions other) {
+    assert codeLocalItems && other.codeLocalItems;
+    return Arrays.equals(code, other.code) && items.hasSameItems(other.items);
+  }
+
+  public void collectIndexedItems(IndexedItemCollection indexedItems) {
+    for (int offset = 0; offset < code.length; offset += sizeAt(offset)) {
+      switch (REFERENCES[code[offset] & 0xff]) {
+        case NONE:
+          break;
+        case METHOD_AND_PROTO:
+          items.getMethod(read16BitValue(offset + 1)).collectIndexedItems(indexedItems);
+          items.getProto(read16BitValue(offset + 3)).collectIndexedItems(indexedItems);
+          break;
+        default:
+          getReference(offset).collectIndexedItems(indexedItems);
+      }
+    }
+  }
+
+  /** The highest sorting string loaded by a const-string instruction, or null if none. */
+  public DexString getHighestSortingString() {
+    if (items.areStringsSorted()) {
+      // The string with the highest index in the input file is the highest sorting one.
+      int highestIndex = -1;
+      for (int offset = 0; offset < code.length; offset += sizeAt(offset)) {
+        byte references = REFERENCES[code[offset] & 0xff];
+        if (references == STRING) {
+          highestIndex = Math.max(highestIndex, read16BitValue(offset + 1));
+        } else if (references == STRING_JUMBO) {
+          highestIndex = Math.max(highestIndex, readStringJumboIndex(offset));
+        }
+      }
+      return highestIndex < 0 ? null : items.getString(highestIndex);
+    }
+    DexString highestSortingString = null;
+    for (int offset = 0; offset < code.length; offset += sizeAt(offset)) {
+      byte references = REFERENCES[code[offset] & 0xff];
+      if (references == STRING || references == STRING_JUMBO) {
+        DexString string = (DexString) getReference(offset);
+        if (highestSortingString == null || highestSortingString.slowCompareTo(string) < 0) {
+          highestSortingString = string;
+        }
+      }
+    }
+    return highestSortingString;
+  }
+
+  /** Writes the code units with all index operands remapped to the indices of the output. */
+  public void write(ShortBuffer dest, ObjectToOffsetMapping mapping) {
+    int start = dest.position();
+    dest.put(code);
+    for (int offset = 0; offset < code.length; offset += sizeAt(offset)) {
+      switch (REFERENCES[code[offset] & 0xff]) {
+        case NONE:
+          break;
+        case STRING_JUMBO: {
+          int index = getReference(offset).getOffset(mapping);
+          dest.put(start + offset + 1, (short) (index & 0xffff));
+          dest.put(start + offset + 2, (short) (index >>> 16));
+          break;
+        }
+        case METHOD_AND_PROTO:
+          write16BitIndex(dest, start + offset + 1,
+              items.getMethod(read16BitValue(offset + 1)).getOffset(mapping));
+          write16BitIndex(dest, start + offset + 3,
+              items.getProto(read16BitValue(offset + 3)).getOffset(mapping));
+          break;
+        default:
+          write16BitIndex(dest, start + offset + 1, getReference(offset).getOffset(mapping));
+      }
+    }
+  }
+
+  private static void write16BitIndex(ShortBuffer dest, int position, int index) {
+    // Strings that need a jumbo index are handled by the JumboStringRewriter before writing.
+    assert index == (index & 0xffff);
+    dest.put(position, (short) index);
+  }
+
+  private IndexedDexItem getReference(int offset) {
+    switch (REFERENCES[code[offset] & 0xff]) {
+      case STRING:
+        return items.getString(read16BitValue(offset + 1));
+      case STRING_JUMBO:
+        return items.getString(readStringJumboIndex(offset));
+      case TYPE:
+        return items.getType(read16BitValue(offset + 1));
+      case FIELD:
+        return items.getField(read16BitValue(offset + 1));
+      case METHOD:
+        return items.getMethod(read16BitValue(offset + 1));
+      case CALL_SITE:
+        return items.getCallSite(read16BitValue(offset + 1));
+      default:
+        throw new AssertionError();
+    }
+  }
+
+  private int readStringJumboIndex(int offset) {
+    return read16BitValue(offset + 1) | (read16BitValue(offset + 2) << 16);
+  }
+
+  private int read16BitValue(int offset) {
+    return code[offset] & 0xffff;
+  }
+
+  private int sizeAt(int offset) {
+    int opcode = code[offset] & 0xff;
+    if (opcode == Nop.OPCODE) {
+      switch (read16BitValue(offset) >> 8) {
+        case 0x01:  // packed-switch-payload
+          return 4 + 2 * read16BitValue(offset + 1);
+        case 0x02:  // sparse-switch-payload
+          return 2 + 4 * read16BitValue(offset + 1);
+        case 0x03: {  // fill-array-data-payload
+          long size = read16BitValue(offset + 2) | ((long) read16BitValue(offset + 3) << 16);
+          return 4 + (int) ((read16BitValue(offset + 1) * size + 1) / 2);
+        }
+        default:
+          return 1;
+      }
+    }
+    int size = SIZES[opcode];
+    if (size == 0) {
+      throw new IllegalArgumentException("Illegal Opcode: 0x" + Integer.toString(opcode, 16));
+    }
+    return size;
+  }
+
+  /**
+   * Collects the items referenced by the instructions of a single code object and assigns them
+   * indices in the tables of that code.
+   */
+  private static class CodeLocalItems extends ObjectToOffsetMapping
+      implements IndexedItemCollection {
+
+    private final Reference2IntMap<IndexedDexItem> indices = new Reference2IntOpenHashMap<>();
+    private final List<DexString> strings = new ArrayList<>();
+    private final List<DexType> types = new ArrayList<>();
+    private final List<DexField> fields = new ArrayList<>();
+    private final List<DexMethod> methods = new ArrayList<>();
+    private final List<DexProto> protos = new ArrayList<>();
+    private final List<DexCallSite> callSites = new ArrayList<>();
+
+    CodeLocalItems() {
+      indices.defaultReturnValue(-1);
+    }
+
+    private <T extends IndexedDexItem> boolean add(List<T> list, T item) {
+      if (!indices.containsKey(item)) {
+        indices.put(item, list.size());
+        list.add(item);
+      }
+      // Only the items referenced by the instructions themselves are needed, not their parts.
+      return false;
+    }
+
+    /** The number of items referenced by the code. */
+    int size() {
+      return indices.size();
+    }
+
+    OffsetToObjectMapping createTable() {
+      OffsetToObjectMapping table = new OffsetToObjectMapping();
+      if (!strings.isEmpty()) {
+        strings.sort(DexString::slowCompareTo);
+        table.initializeStrings(strings.size());
+        for (int i = 0; i < strings.size(); i++) {
+          indices.put(strings.get(i), i);
+          table.setString(i, strings.get(i));
+        }
+      }
+      table.setStringsSorted(true);
+      if (!types.isEmpty()) {
+        table.initializeTypes(types.size());
+        for (int i = 0; i < types.size(); i++) {
+          table.setType(i, types.get(i));
+        }
+      }
+      if (!fields.isEmpty()) {
+        table.initializeFields(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+          table.setField(i, fields.get(i));
+        }
+      }
+      if (!methods.isEmpty()) {
+        table.initializeMethods(methods.size());
+        for (int i = 0; i < methods.size(); i++) {
+          table.setMethod(i, methods.get(i));
+        }
+      }
+      if (!protos.isEmpty()) {
+        table.initializeProtos(protos.size());
+        for (int i = 0; i < protos.size(); i++) {
+          table.setProto(i, protos.get(i));
+        }
+      }
+      if (!callSites.isEmpty()) {
+        table.initializeCallSites(callSites.size());
+        for (int i = 0; i < callSites.size(); i++) {
+          table.setCallSites(i, callSites.get(i));
+        }
+      }
+      return table;
+    }
+
+    private int getIndex(IndexedDexItem item) {
+      int index = indices.getInt(item);
+      assert index >= 0 : "Missing dependency: " + item;
+      return index;
+    }
+
+    @Override
+    public boolean addClass(DexProgramClass dexProgramClass) {
+      return false;
+    }
+
+    @Override
+    public boolean addField(DexField field) {
+      return add(fields, field);
+    }
+
+    @Override
+    public boolean addMethod(DexMethod method) {
+      return add(methods, method);
+    }
+
+    @Override
+    public boolean addString(DexString string) {
+      return add(strings, string);
+    }
+
+    @Override
+    public boolean addProto(DexProto proto) {
+      return add(protos, proto);
+    }
+
+    @Override
+    public boolean addType(DexType type) {
+      return add(types, type);
+    }
+
+    @Override
+    public boolean addCallSite(DexCallSite callSite) {
+      return add(callSites, callSite);
+    }
+
+    @Override
+    public boolean addMethodHandle(DexMethodHandle methodHandle) {
+      return false;
+    }
+
+    @Override
+    public int getOffsetFor(DexProto proto) {
+      return getIndex(proto);
+    }
+
+    @Override
+    public int getOffsetFor(DexField field) {
+      return getIndex(field);
+    }
+
+    @Override
+    public int getOffsetFor(DexMethod method) {
+      return getIndex(method);
+    }
+
+    @Override
+    public int getOffsetFor(DexString string) {
+      return getIndex(string);
+    }
+
+    @Override
+    public int getOffsetFor(DexType type) {
+      return getIndex(type);
+    }
+
+    @Override
+    public int getOffsetFor(DexCallSite callSite) {
+      return getIndex(callSite);
+    }
+
+    @Override
+    public int getOffsetFor(DexMethodHandle methodHandle) {
+      throw new AssertionError("Method handles are not referenced by instructions");
+    }
+  }
+}
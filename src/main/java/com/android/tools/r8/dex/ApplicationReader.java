@@ -35,9 +35,12 @@ import com.android.tools.r8.utils.LibraryClassCollection;
 import com.android.tools.r8.utils.MainDexList;
 import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Closer;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
@@ -135,8 +138,18 @@ public class ApplicationReader {
     // Read the Proguard mapping file in parallel with DexCode and DexProgramClass items.
     if (inputApp.hasProguardMap()) {
       futures.add(executorService.submit(() -> {
-        try (InputStream map = inputApp.getProguardMap()) {
-          builder.setProguardMap(ProguardMapReader.mapperFromInputStream(map));
+        // Only index the map here, the member mappings are parsed for the classes that are
+        // looked up. A map file is memory-mapped instead of being read onto the heap.
+        Path mapFile = inputApp.getProguardMapFile();
+        try {
+          if (mapFile != null) {
+            builder.setProguardMap(ProguardMapReader.indexFromFile(mapFile));
+          } else {
+            try (InputStream map = inputApp.getProguardMap()) {
+              builder.setProguardMap(ProguardMapReader.mapperFromBuffer(
+                  ByteBuffer.wrap(ByteStreams.toByteArray(map))));
+            }
+          }
         } catch (IOException e) {
           throw new RuntimeException(e);
         }
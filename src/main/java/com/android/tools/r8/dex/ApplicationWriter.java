@@ -17,6 +17,7 @@ import com.android.tools.r8.graph.DexApplication;
 import com.android.tools.r8.graph.DexCode;
 import com.android.tools.r8.graph.DexDebugInfo;
 import com.android.tools.r8.graph.DexEncodedArray;
+import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexProgramClass;
 import com.android.tools.r8.graph.DexString;
 import com.android.tools.r8.graph.DexType;
@@ -29,12 +30,16 @@ import com.android.tools.r8.utils.DescriptorUtils;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.OutputMode;
 import com.android.tools.r8.utils.PackageDistribution;
+import com.android.tools.r8.utils.ThreadUtils;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -132,7 +137,10 @@ public class ApplicationWriter {
       throws IOException, ExecutionException {
     application.timing.begin("DexApplication.write");
     try {
-      application.dexItemFactory.sort(namingLens);
+      application.dexItemFactory.sort(namingLens, executorService);
+      // The writer does not sort again, so the sorted items are not kept for an incremental sort
+      // for the rest of the compilation.
+      application.dexItemFactory.clearSortedItems();
       assert this.markerString == null || application.dexItemFactory.extractMarker() != null;
 
       SortAnnotations sortAnnotations = new SortAnnotations();
@@ -153,28 +161,47 @@ public class ApplicationWriter {
               + " For API level < " + Constants.ANDROID_L_API + ", main dex classes list or"
               + " rules must be specified.");
         }
-        distributor = new VirtualFile.MonoDexDistributor(this);
+        distributor = new VirtualFile.MonoDexDistributor(this, executorService);
       } else if (packageDistribution != null) {
         assert !options.minimalMainDex :
             "Cannot combine package distribution definition with minimal-main-dex option.";
         distributor =
             new VirtualFile.PackageMapDistributor(this, packageDistribution, executorService);
       } else {
-        distributor = new VirtualFile.FillFilesDistributor(this, options.minimalMainDex);
+        distributor = new VirtualFile.FillFilesDistributor(
+            this, options.minimalMainDex, executorService);
       }
       Map<Integer, VirtualFile> newFiles = distributor.run();
 
-      // Write the dex files and the Proguard mapping file in parallel. Use a linked hash map
-      // as the order matters when addDexProgramData is called below.
-      LinkedHashMap<VirtualFile, Future<byte[]>> dexDataFutures = new LinkedHashMap<>();
+      // Compute the index mapping of each dex file in parallel. Use a linked hash map as the
+      // order matters when addDexProgramData is called below.
+      LinkedHashMap<VirtualFile, Future<FileWriter>> fileWriterFutures = new LinkedHashMap<>();
       for (int i = 0; i < newFiles.size(); i++) {
         VirtualFile newFile = newFiles.get(i);
         assert newFile.getId() == i;
         assert !newFile.isEmpty();
         if (!newFile.isEmpty()) {
-          dexDataFutures.put(newFile, executorService.submit(() -> writeDexFile(newFile)));
+          fileWriterFutures.put(newFile, executorService.submit(() -> createFileWriter(newFile)));
         }
       }
+      LinkedHashMap<VirtualFile, FileWriter> fileWriters = new LinkedHashMap<>();
+      try {
+        for (Map.Entry<VirtualFile, Future<FileWriter>> entry : fileWriterFutures.entrySet()) {
+          fileWriters.put(entry.getKey(), entry.getValue().get());
+        }
+      } catch (InterruptedException e) {
+        throw new RuntimeException("Interrupted while waiting for future.", e);
+      }
+
+      // The file writers now know the indexes of the fixed sections including strings.
+      rewriteCodeWithJumboStrings(fileWriters, executorService);
+
+      // Write the dex files in parallel.
+      LinkedHashMap<VirtualFile, Future<byte[]>> dexDataFutures = new LinkedHashMap<>();
+      for (Map.Entry<VirtualFile, FileWriter> entry : fileWriters.entrySet()) {
+        FileWriter fileWriter = entry.getValue();
+        dexDataFutures.put(entry.getKey(), executorService.submit(() -> writeDexFile(fileWriter)));
+      }
 
       // Wait for all the spawned futures to terminate.
       AndroidApp.Builder builder = AndroidApp.builder();
@@ -207,12 +234,38 @@ public class ApplicationWriter {
     }
   }
 
-  private byte[] writeDexFile(VirtualFile vfile) throws ApiLevelException {
-    FileWriter fileWriter =
-        new FileWriter(
-            vfile.computeMapping(application), application, appInfo, options, namingLens);
-    // The file writer now knows the indexes of the fixed sections including strings.
-    fileWriter.rewriteCodeWithJumboStrings(vfile.classes());
+  private FileWriter createFileWriter(VirtualFile vfile) {
+    return new FileWriter(
+        vfile.computeMapping(application), application, appInfo, options, namingLens);
+  }
+
+  private void rewriteCodeWithJumboStrings(
+      Map<VirtualFile, FileWriter> fileWriters, ExecutorService executorService)
+      throws ExecutionException {
+    // Methods are rewritten in parallel, but methods sharing a code object are rewritten in
+    // sequence by the same task, as the rewriter updates the offsets of the shared instructions.
+    Map<DexCode, List<DexEncodedMethod>> methodsByCode = new IdentityHashMap<>();
+    Map<DexEncodedMethod, FileWriter> methodToFileWriter = new IdentityHashMap<>();
+    for (Map.Entry<VirtualFile, FileWriter> entry : fileWriters.entrySet()) {
+      FileWriter fileWriter = entry.getValue();
+      for (DexEncodedMethod method : fileWriter.methodsWithJumboStrings(entry.getKey().classes())) {
+        methodsByCode.computeIfAbsent(method.getCode().asDexCode(), k -> new ArrayList<>())
+            .add(method);
+        methodToFileWriter.put(method, fileWriter);
+      }
+    }
+    List<Future<?>> futures = new ArrayList<>();
+    for (List<DexEncodedMethod> methods : methodsByCode.values()) {
+      futures.add(executorService.submit(() -> {
+        for (DexEncodedMethod method : methods) {
+          methodToFileWriter.get(method).rewriteCodeWithJumboStrings(method);
+        }
+      }));
+    }
+    ThreadUtils.awaitFutures(futures);
+  }
+
+  private byte[] writeDexFile(FileWriter fileWriter) throws ApiLevelException {
     // Collect the non-fixed sections.
     fileWriter.collect();
     // Generate and write the bytes.
@@ -9,8 +9,7 @@ import static com.android.tools.r8.utils.EncodedValueUtils.parseSigned;
 import static com.android.tools.r8.utils.EncodedValueUtils.parseUnsigned;
 
 import com.android.tools.r8.Resource;
-import com.android.tools.r8.code.Instruction;
-import com.android.tools.r8.code.InstructionFactory;
+import com.android.tools.r8.code.EncodedInstructions;
 import com.android.tools.r8.graph.ClassKind;
 import com.android.tools.r8.graph.Descriptor;
 import com.android.tools.r8.graph.DexAccessFlags;
@@ -40,6 +39,7 @@ import com.android.tools.r8.graph.DexMemberAnnotation.DexParameterAnnotation;
 import com.android.tools.r8.graph.DexMethod;
 import com.android.tools.r8.graph.DexMethodHandle;
 import com.android.tools.r8.graph.DexMethodHandle.MethodHandleType;
+import com.android.tools.r8.graph.DexProgramClass;
 import com.android.tools.r8.graph.DexProto;
 import com.android.tools.r8.graph.DexString;
 import com.android.tools.r8.graph.DexType;
@@ -56,7 +56,6 @@ import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ShortBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -86,6 +85,19 @@ public class DexFileReader {
     return reader.segments;
   }
 
+  /**
+   * Reads the program classes of a single dex file, including their code, with the given factory.
+   */
+  public static List<DexProgramClass> readProgramClasses(DexFile dex, DexItemFactory factory) {
+    DexFileReader reader = new DexFileReader(dex, ClassKind.PROGRAM, factory);
+    populateIndexTables(reader);
+    reader.addCodeItemsTo();
+    List<DexProgramClass> classes = new ArrayList<>();
+    reader.addClassDefsTo(ClassKind.PROGRAM.<DexProgramClass>bridgeConsumer(classes::add));
+    reader.close();
+    return classes;
+  }
+
   public void close() {
     // This close behavior is needed to reduce peak memory usage of D8/R8.
     indexedItems = null;
@@ -789,18 +801,15 @@ public class DexFileReader {
     int saved = file.position();
     DexDebugInfo debugInfo = debugInfoAt(debugInfoOff);
     file.position(saved);
-    InstructionFactory factory = new InstructionFactory();
-    Instruction[] instructions =
-        factory.readSequenceFrom(ShortBuffer.wrap(code), 0, code.length, indexedItems);
+    // The instructions are decoded lazily, see DexCode.getInstructions().
     return new DexCode(
         registerSize,
         insSize,
         outsSize,
-        instructions,
+        new EncodedInstructions(code, indexedItems),
         tries,
         handlers,
-        debugInfo,
-        factory.getHighestSortingString());
+        debugInfo);
   }
 
   static void populateIndexTables(DexFileReader fileReader) {
@@ -816,9 +825,15 @@ public class DexFileReader {
 
   private static void populateStrings(DexFileReader reader) {
     reader.indexedItems.initializeStrings(reader.stringIDs.length);
+    boolean sorted = true;
+    DexString previous = null;
     for (int i = 0; i < reader.stringIDs.length; i++) {
-      reader.indexedItems.setString(i, reader.stringAt(i));
+      DexString string = reader.stringAt(i);
+      reader.indexedItems.setString(i, string);
+      sorted = sorted && (previous == null || previous.slowCompareTo(string) < 0);
+      previous = string;
     }
+    reader.indexedItems.setStringsSorted(sorted);
   }
 
   private static void populateMethodHandles(DexFileReader reader) {
@@ -3,6 +3,7 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.dex;
 
+import com.android.tools.r8.code.EncodedInstructions;
 import com.android.tools.r8.code.Instruction;
 import com.android.tools.r8.graph.ObjectToOffsetMapping;
 import com.android.tools.r8.utils.EncodedValueUtils;
@@ -70,6 +71,14 @@ public class DexOutputBuffer {
     byteBuffer.position(byteBuffer.position() + shortBuffer.position() * Short.BYTES);
   }
 
+  public void putInstructions(EncodedInstructions insns, ObjectToOffsetMapping mapping) {
+    ensureSpaceFor(insns.size() * Short.BYTES);
+    assert byteBuffer.position() % 2 == 0;
+    ShortBuffer shortBuffer = byteBuffer.asShortBuffer();
+    insns.write(shortBuffer, mapping);
+    byteBuffer.position(byteBuffer.position() + shortBuffer.position() * Short.BYTES);
+  }
+
   public void putByte(byte aByte) {
     ensureSpaceFor(Byte.BYTES);
     byteBuffer.put(aByte);
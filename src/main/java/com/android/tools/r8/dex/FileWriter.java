@@ -6,6 +6,7 @@ package com.android.tools.r8.dex;
 import static com.android.tools.r8.utils.LebUtils.sizeAsUleb128;
 
 import com.android.tools.r8.ApiLevelException;
+import com.android.tools.r8.code.EncodedInstructions;
 import com.android.tools.r8.code.Instruction;
 import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.graph.AppInfo;
@@ -60,6 +61,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.IdentityHashMap;
 import java.util.List;
@@ -153,35 +155,52 @@ public class FileWriter {
     return this;
   }
 
-  private void rewriteCodeWithJumboStrings(DexEncodedMethod method) {
+  private boolean needsJumboStrings(DexEncodedMethod method) {
     if (method.getCode() == null) {
-      return;
-    }
-    DexCode code = method.getCode().asDexCode();
-    if (code.highestSortingString != null) {
-      if (mapping.getOffsetFor(code.highestSortingString) > Constants.MAX_NON_JUMBO_INDEX) {
-        JumboStringRewriter rewriter =
-            new JumboStringRewriter(method, mapping.getFirstJumboString(), options.itemFactory);
-        rewriter.rewrite();
-      }
+      return false;
     }
+    DexString highestSortingString = method.getCode().asDexCode().getHighestSortingString();
+    return highestSortingString != null
+        && mapping.getOffsetFor(highestSortingString) > Constants.MAX_NON_JUMBO_INDEX;
   }
 
-  public FileWriter rewriteCodeWithJumboStrings(List<DexProgramClass> classes) {
+  /**
+   * Returns the methods of the given classes that refer to a string with a jumbo index in this
+   * file. Their code must be rewritten using {@link #rewriteCodeWithJumboStrings} before the
+   * non-fixed sections are collected.
+   */
+  public List<DexEncodedMethod> methodsWithJumboStrings(List<DexProgramClass> classes) {
     // If there are no strings with jumbo indices at all this is a no-op.
     if (!mapping.hasJumboStrings()) {
-      return this;
+      return Collections.emptyList();
     }
     // If the globally highest sorting string is not a jumbo string this is also a no-op.
     if (application.highestSortingString != null &&
         application.highestSortingString.slowCompareTo(mapping.getFirstJumboString()) < 0) {
-      return this;
+      return Collections.emptyList();
     }
-    // At least one method needs a jumbo string.
+    List<DexEncodedMethod> methods = new ArrayList<>();
     for (DexProgramClass clazz : classes) {
-      clazz.forEachMethod(method -> rewriteCodeWithJumboStrings(method));
+      clazz.forEachMethod(method -> {
+        if (needsJumboStrings(method)) {
+          methods.add(method);
+        }
+      });
+    }
+    return methods;
+  }
+
+  /**
+   * Rewrites the code of a single method returned by {@link #methodsWithJumboStrings}. Methods
+   * do not depend on each other, so they can be rewritten concurrently as long as methods that
+   * share a code object are rewritten by the same thread.
+   */
+  public void rewriteCodeWithJumboStrings(DexEncodedMethod method) {
+    if (needsJumboStrings(method)) {
+      JumboStringRewriter rewriter =
+          new JumboStringRewriter(method, mapping.getFirstJumboString(), options.itemFactory);
+      rewriter.rewrite();
     }
-    return this;
   }
 
   public byte[] generate() throws ApiLevelException {
@@ -194,6 +213,12 @@ public class FileWriter {
     // Sort the codes first, as their order might impact size due to alignment constraints.
     List<DexCode> codes = sortDexCodesByClassName(mixedSectionOffsets.getCodes(), application);
 
+    if (options.verbose && !mixedSectionOffsets.getSharedCodes().isEmpty()) {
+      System.out.println("Shared code items of " + mixedSectionOffsets.getSharedCodes().size()
+          + " methods, saving " + sizeOfCodeItems(mixedSectionOffsets.getSharedCodes())
+          + " bytes.");
+    }
+
     // Output the debug_info_items first, as they have no dependencies.
     dest.moveTo(layout.getCodesOffset() + sizeOfCodeItems(codes));
     writeItems(mixedSectionOffsets.getDebugInfos(), layout::setDebugInfosOffset,
@@ -338,7 +363,8 @@ public class FileWriter {
     Map<DexCode, String> codeToSignatureMap = new IdentityHashMap<>();
     for (DexProgramClass clazz : mapping.getClasses()) {
       clazz.forEachMethod(method ->
-          addSignaturesFromMethod(method, codeToSignatureMap, application.getProguardMap()));
+          addSignaturesFromMethod(method, codeToSignatureMap, application.getProguardMap(),
+              mixedSectionOffsets));
     }
     DexCode[] codesArray = codes.toArray(new DexCode[codes.size()]);
     Arrays.sort(codesArray, Comparator.comparing(codeToSignatureMap::get));
@@ -347,7 +373,8 @@ public class FileWriter {
 
   private static void addSignaturesFromMethod(DexEncodedMethod method,
       Map<DexCode, String> codeToSignatureMap,
-      ClassNameMapper proguardMap) {
+      ClassNameMapper proguardMap,
+      MixedSectionOffsets mixedSectionOffsets) {
     if (method.getCode() == null) {
       assert method.accessFlags.isAbstract() || method.accessFlags.isNative();
     } else {
@@ -360,7 +387,11 @@ public class FileWriter {
         signature = MethodSignature.fromDexMethod(method.method);
         originalClassName = method.method.holder.toSourceString();
       }
-      codeToSignatureMap.put(method.getCode().asDexCode(), originalClassName + signature);
+      // A code item shared by several methods is sorted by the smallest of their signatures.
+      codeToSignatureMap.merge(
+          mixedSectionOffsets.getCanonicalCode(method.getCode().asDexCode()),
+          originalClassName + signature,
+          (first, second) -> first.compareTo(second) <= 0 ? first : second);
     }
   }
 
@@ -407,8 +438,13 @@ public class FileWriter {
   private int sizeOfCodeItem(DexCode code) {
     int result = 16;
     int insnSize = 0;
-    for (Instruction insn : code.instructions) {
-      insnSize += insn.getSize();
+    EncodedInstructions encoded = code.getEncodedInstructions();
+    if (encoded != null) {
+      insnSize = encoded.size();
+    } else {
+      for (Instruction insn : code.getInstructions()) {
+        insnSize += insn.getSize();
+      }
     }
     result += insnSize * 2;
     result += code.tries.length * 8;
@@ -502,7 +538,13 @@ public class FileWriter {
     int insnSizeOffset = dest.position();
     dest.forward(4);
     // Write instruction stream.
-    dest.putInstructions(code.instructions, mapping);
+    EncodedInstructions encoded = code.getEncodedInstructions();
+    if (encoded != null) {
+      // Code that was not changed is copied with only its indices patched.
+      dest.putInstructions(encoded, mapping);
+    } else {
+      dest.putInstructions(code.getInstructions(), mapping);
+    }
     // Compute size and do the backward/forward dance to write the size at the beginning.
     int insnSize = dest.position() - insnSizeOffset - 4;
     dest.rewind(insnSize + 4);
@@ -1067,6 +1109,8 @@ public class FileWriter {
     private static final int NOT_KNOWN = -2;
 
     private final Reference2IntMap<DexCode> codes = createReference2IntMap();
+    private final Map<DexCode, DexCode> canonicalCodes = new HashMap<>();
+    private final Map<DexCode, DexCode> sharedCodes = new IdentityHashMap<>();
     private final Object2IntMap<DexDebugInfo> debugInfos = createObject2IntMap();
     private final Object2IntMap<DexTypeList> typeLists = createObject2IntMap();
     private final Reference2IntMap<DexString> stringData = createReference2IntMap();
@@ -1129,6 +1173,17 @@ public class FileWriter {
 
     @Override
     public boolean add(DexCode code) {
+      // Code is shared by content, so that identical method bodies are written once. Code that is
+      // still in the encoded form of an input file is only shared by identity, as comparing it
+      // would decode it. Built code is compared in its encoded form.
+      EncodedInstructions encoded = code.getEncodedInstructions();
+      if (encoded == null || encoded.hasCodeLocalItems()) {
+        DexCode canonical = canonicalCodes.putIfAbsent(code, code);
+        if (canonical != null && canonical != code) {
+          sharedCodes.put(code, canonical);
+          return false;
+        }
+      }
       return add(codes, code);
     }
 
@@ -1174,6 +1229,11 @@ public class FileWriter {
       return codes.keySet();
     }
 
+    /** Codes that are written as a code item of another method with identical code. */
+    public Collection<DexCode> getSharedCodes() {
+      return sharedCodes.keySet();
+    }
+
     public Collection<DexDebugInfo> getDebugInfos() {
       return debugInfos.keySet();
     }
@@ -1279,8 +1339,12 @@ public class FileWriter {
       return lookup(annotationSetRefList, annotationSetRefLists);
     }
 
+    public DexCode getCanonicalCode(DexCode code) {
+      return sharedCodes.getOrDefault(code, code);
+    }
+
     public int getOffsetFor(DexCode code) {
-      return lookup(code, codes);
+      return lookup(getCanonicalCode(code), codes);
     }
 
     private <T> void setOffsetFor(T item, int offset, Map<T, Integer> table) {
@@ -51,14 +51,13 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
-import java.util.Map.Entry;
 
 public class JumboStringRewriter {
 
-  private static class TryTargets {
-    private Instruction start;
-    private Instruction end;
-    private boolean endsAfterLastInstruction;
+  private class TryTargets {
+    private final Instruction start;
+    private final Instruction end;
+    private final boolean endsAfterLastInstruction;
 
     TryTargets(Instruction start, Instruction end, boolean endsAfterLastInstruction) {
       assert start != null;
@@ -68,24 +67,16 @@ public class JumboStringRewriter {
       this.endsAfterLastInstruction = endsAfterLastInstruction;
     }
 
-    void replaceTarget(Instruction target, Instruction newTarget) {
-      if (start == target) {
-        start = newTarget;
-      }
-      if (end == target) {
-        end = newTarget;
-      }
-    }
-
     int getStartOffset() {
-      return start.getOffset();
+      return resolve(start).getOffset();
     }
 
     int getStartToEndDelta() {
+      Instruction end = resolve(this.end);
       if (endsAfterLastInstruction) {
-        return end.getOffset() + end.getSize() - start.getOffset();
+        return end.getOffset() + end.getSize() - getStartOffset();
       }
-      return end.getOffset() - start.getOffset();
+      return end.getOffset() - getStartOffset();
     }
   }
 
@@ -98,6 +89,9 @@ public class JumboStringRewriter {
   private final Map<Instruction, Instruction> payloadToSwitch = new IdentityHashMap<>();
   private final Map<Try, TryTargets> tryTargets = new IdentityHashMap<>();
   private final Map<TryHandler, List<Instruction>> handlerTargets = new IdentityHashMap<>();
+  // Instructions replaced during expansion, mapped to their replacement. Recorded targets are
+  // resolved through this map when their offset is needed instead of being updated in place.
+  private final Map<Instruction, Instruction> replacements = new IdentityHashMap<>();
 
   public JumboStringRewriter(
       DexEncodedMethod method, DexString firstJumboString, DexItemFactory factory) {
@@ -128,39 +122,39 @@ public class JumboStringRewriter {
         newTries,
         newHandlers,
         newDebugInfo,
-        code.highestSortingString));
+        code.getHighestSortingString()));
   }
 
   private void rewriteInstructionOffsets(List<Instruction> instructions) {
     for (Instruction instruction : instructions) {
       if (instruction instanceof Format22t) {  // IfEq, IfGe, IfGt, IfLe, IfLt, IfNe
         Format22t condition = (Format22t) instruction;
-        int offset = instructionTargets.get(condition).get(0).getOffset() - instruction.getOffset();
+        int offset = branchTarget(condition).getOffset() - instruction.getOffset();
         assert Short.MIN_VALUE <= offset && offset <= Short.MAX_VALUE;
         condition.CCCC = (short) offset;
       } else if (instruction instanceof Format21t) {  // IfEqz, IfGez, IfGtz, IfLez, IfLtz, IfNez
         Format21t condition = (Format21t) instruction;
-        int offset = instructionTargets.get(condition).get(0).getOffset() - instruction.getOffset();
+        int offset = branchTarget(condition).getOffset() - instruction.getOffset();
         assert Short.MIN_VALUE <= offset && offset <= Short.MAX_VALUE;
         condition.BBBB = (short) offset;
       } else if (instruction instanceof Goto) {
         Goto jump = (Goto) instruction;
-        int offset = instructionTargets.get(jump).get(0).getOffset() - instruction.getOffset();
+        int offset = branchTarget(jump).getOffset() - instruction.getOffset();
         assert Byte.MIN_VALUE <= offset && offset <= Byte.MAX_VALUE;
         jump.AA = (byte) offset;
       } else if (instruction instanceof Goto16) {
         Goto16 jump = (Goto16) instruction;
-        int offset = instructionTargets.get(jump).get(0).getOffset() - instruction.getOffset();
+        int offset = branchTarget(jump).getOffset() - instruction.getOffset();
         assert Short.MIN_VALUE <= offset && offset <= Short.MAX_VALUE;
         jump.AAAA = (short) offset;
       } else if (instruction instanceof Goto32) {
         Goto32 jump = (Goto32) instruction;
-        int offset = instructionTargets.get(jump).get(0).getOffset() - instruction.getOffset();
+        int offset = branchTarget(jump).getOffset() - instruction.getOffset();
         jump.AAAAAAAA = offset;
       } else if (instruction instanceof Format31t) {  // FillArrayData, SparseSwitch, PackedSwitch
         Format31t payloadUser = (Format31t) instruction;
         int offset =
-            instructionTargets.get(payloadUser).get(0).getOffset() - instruction.getOffset();
+            branchTarget(payloadUser).getOffset() - instruction.getOffset();
         payloadUser.setPayloadOffset(offset);
       } else if (instruction instanceof SwitchPayload) {
         SwitchPayload payload = (SwitchPayload) instruction;
@@ -168,7 +162,7 @@ public class JumboStringRewriter {
         List<Instruction> switchTargets = instructionTargets.get(payload);
         int[] targets = payload.switchTargetOffsets();
         for (int i = 0; i < switchTargets.size(); i++) {
-          Instruction target = switchTargets.get(i);
+          Instruction target = resolve(switchTargets.get(i));
           targets[i] = target.getOffset() - switchInstruction.getOffset();
         }
       }
@@ -199,12 +193,12 @@ public class JumboStringRewriter {
       Iterator<Instruction> it = targets.iterator();
       int catchAllAddr = NO_HANDLER;
       if (handler.catchAllAddr != NO_HANDLER) {
-        catchAllAddr = it.next().getOffset();
+        catchAllAddr = resolve(it.next()).getOffset();
       }
       TypeAddrPair[] newPairs = new TypeAddrPair[handler.pairs.length];
       for (int j = 0; j < handler.pairs.length; j++) {
         TypeAddrPair pair = handler.pairs[j];
-        newPairs[j] = new TypeAddrPair(pair.type, it.next().getOffset());
+        newPairs[j] = new TypeAddrPair(pair.type, resolve(it.next()).getOffset());
       }
       result[i] = new TryHandler(newPairs, catchAllAddr);
     }
@@ -221,14 +215,14 @@ public class JumboStringRewriter {
         if (event instanceof AdvancePC) {
           AdvancePC advance = (AdvancePC) event;
           lastOriginalOffset += advance.delta;
-          Instruction target = debugEventTargets.get(lastOriginalOffset);
+          Instruction target = resolve(debugEventTargets.get(lastOriginalOffset));
           int pcDelta = target.getOffset() - lastNewOffset;
           addAdvancementEvents(0, pcDelta, events);
           lastNewOffset = target.getOffset();
         } else if (event instanceof Default) {
           Default defaultEvent = (Default) event;
           lastOriginalOffset += defaultEvent.getPCDelta();
-          Instruction target = debugEventTargets.get(lastOriginalOffset);
+          Instruction target = resolve(debugEventTargets.get(lastOriginalOffset));
           int lineDelta = defaultEvent.getLineDelta();
           int pcDelta = target.getOffset() - lastNewOffset;
           addAdvancementEvents(lineDelta, pcDelta, events);
@@ -270,7 +264,7 @@ public class JumboStringRewriter {
 
   private List<Instruction> expandCode() {
     LinkedList<Instruction> instructions = new LinkedList<>();
-    Collections.addAll(instructions, method.getCode().asDexCode().instructions);
+    Collections.addAll(instructions, method.getCode().asDexCode().getInstructions());
     int offsetDelta;
     do {
       ListIterator<Instruction> it = instructions.listIterator();
@@ -290,7 +284,7 @@ public class JumboStringRewriter {
         } else if (instruction instanceof Format22t) {  // IfEq, IfGe, IfGt, IfLe, IfLt, IfNe
           Format22t condition = (Format22t) instruction;
           int offset =
-              instructionTargets.get(condition).get(0).getOffset() - instruction.getOffset();
+              branchTarget(condition).getOffset() - instruction.getOffset();
           if (Short.MIN_VALUE > offset || offset > Short.MAX_VALUE) {
             Format22t newCondition = null;
             switch (condition.getType().inverted()) {
@@ -318,7 +312,7 @@ public class JumboStringRewriter {
         } else if (instruction instanceof Format21t) {  // IfEqz, IfGez, IfGtz, IfLez, IfLtz, IfNez
           Format21t condition = (Format21t) instruction;
           int offset =
-              instructionTargets.get(condition).get(0).getOffset() - instruction.getOffset();
+              branchTarget(condition).getOffset() - instruction.getOffset();
           if (Short.MIN_VALUE > offset || offset > Short.MAX_VALUE) {
             Format21t newCondition = null;
             switch (condition.getType().inverted()) {
@@ -346,7 +340,7 @@ public class JumboStringRewriter {
         } else if (instruction instanceof Goto) {
           Goto jump = (Goto) instruction;
           int offset =
-              instructionTargets.get(jump).get(0).getOffset() - instruction.getOffset();
+              branchTarget(jump).getOffset() - instruction.getOffset();
           if (Byte.MIN_VALUE > offset || offset > Byte.MAX_VALUE) {
             Instruction newJump;
             if (Short.MIN_VALUE > offset || offset > Short.MAX_VALUE) {
@@ -364,7 +358,7 @@ public class JumboStringRewriter {
         } else if (instruction instanceof Goto16) {
           Goto16 jump = (Goto16) instruction;
           int offset =
-              instructionTargets.get(jump).get(0).getOffset() - instruction.getOffset();
+              branchTarget(jump).getOffset() - instruction.getOffset();
           if (Short.MIN_VALUE > offset || offset > Short.MAX_VALUE) {
             Instruction newJump = new Goto32(offset);
             newJump.setOffset(jump.getOffset());
@@ -417,24 +411,25 @@ public class JumboStringRewriter {
   }
 
   private void replaceTarget(Instruction target, Instruction newTarget) {
-    for (List<Instruction> instructions : instructionTargets.values()) {
-      instructions.replaceAll((i) -> i == target ? newTarget : i);
-    }
-    for (Int2ReferenceMap.Entry<Instruction> entry : debugEventTargets.int2ReferenceEntrySet()) {
-      if (entry.getValue() == target) {
-        entry.setValue(newTarget);
-      }
-    }
-    for (Entry<Try, TryTargets> entry : tryTargets.entrySet()) {
-      entry.getValue().replaceTarget(target, newTarget);
-    }
-    for (List<Instruction> instructions : handlerTargets.values()) {
-      instructions.replaceAll((i) -> i == target ? newTarget : i);
+    assert !replacements.containsKey(target);
+    replacements.put(target, newTarget);
+  }
+
+  private Instruction resolve(Instruction target) {
+    Instruction replacement = replacements.get(target);
+    while (replacement != null) {
+      target = replacement;
+      replacement = replacements.get(target);
     }
+    return target;
+  }
+
+  private Instruction branchTarget(Instruction instruction) {
+    return resolve(instructionTargets.get(instruction).get(0));
   }
 
   private void recordInstructionTargets(Int2ReferenceMap<Instruction> offsetToInstruction) {
-    Instruction[] instructions = method.getCode().asDexCode().instructions;
+    Instruction[] instructions = method.getCode().asDexCode().getInstructions();
     for (Instruction instruction : instructions) {
       if (instruction instanceof Format22t) {  // IfEq, IfGe, IfGt, IfLe, IfLt, IfNe
         Format22t condition = (Format22t) instruction;
@@ -542,7 +537,7 @@ public class JumboStringRewriter {
 
   private void recordTargets() {
     Int2ReferenceMap<Instruction> offsetToInstruction = new Int2ReferenceOpenHashMap<>();
-    Instruction[] instructions = method.getCode().asDexCode().instructions;
+    Instruction[] instructions = method.getCode().asDexCode().getInstructions();
     boolean containsPayloads = false;
     for (Instruction instruction : instructions) {
       offsetToInstruction.put(instruction.getOffset(), instruction);
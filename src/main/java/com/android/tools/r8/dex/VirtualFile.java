@@ -26,6 +26,7 @@ import com.android.tools.r8.utils.DescriptorUtils;
 import com.android.tools.r8.utils.FileUtils;
 import com.android.tools.r8.utils.PackageDistribution;
 import com.android.tools.r8.utils.ThreadUtils;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -39,6 +40,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -71,6 +73,10 @@ public class VirtualFile {
    * driven by this constant.
    */
   private static final int MAX_PREFILL_ENTRIES = MAX_ENTRIES - 5000;
+  /**
+   * The number of classes whose references are collected in parallel before placing them.
+   */
+  private static final int REFERENCE_BATCH_SIZE = 1000;
 
   private final int id;
   private final VirtualFileIndexedItemCollection indexedItems;
@@ -165,6 +171,27 @@ public class VirtualFile {
     transaction.addClassAndDependencies(clazz);
   }
 
+  private void addClass(ClassReferences references) {
+    transaction.addClassReferences(references);
+  }
+
+  /**
+   * Collects the references of the given classes in parallel. Traversing the classes and their
+   * code is the expensive part of adding classes to files, and does not depend on the files.
+   *
+   * <p>Callers pass at most {@link #REFERENCE_BATCH_SIZE} classes at a time, so that only the
+   * references of the classes that are about to be placed are kept alive.
+   */
+  private static List<ClassReferences> collectReferences(
+      Collection<DexProgramClass> classes, NamingLens namingLens, ExecutorService executorService)
+      throws ExecutionException {
+    List<Future<ClassReferences>> futures = new ArrayList<>(classes.size());
+    for (DexProgramClass clazz : classes) {
+      futures.add(executorService.submit(() -> new ClassReferences(clazz, namingLens)));
+    }
+    return ThreadUtils.awaitFutures(futures);
+  }
+
   private static boolean isFull(int numberOfMethods, int numberOfFields, int maximum) {
     return (numberOfMethods > maximum) || (numberOfFields > maximum);
   }
@@ -314,12 +341,13 @@ public class VirtualFile {
 
   public static class FillFilesDistributor extends DistributorBase {
     boolean minimalMainDex;
-    private final FillStrategy fillStrategy;
+    private final ExecutorService executorService;
 
-    FillFilesDistributor(ApplicationWriter writer, boolean minimalMainDex) {
+    FillFilesDistributor(
+        ApplicationWriter writer, boolean minimalMainDex, ExecutorService executorService) {
       super(writer);
       this.minimalMainDex = minimalMainDex;
-      this.fillStrategy = FillStrategy.FILL_MAX;
+      this.executorService = executorService;
     }
 
     public Map<Integer, VirtualFile> run() throws ExecutionException, IOException {
@@ -343,24 +371,28 @@ public class VirtualFile {
       // This with make classes from the same package be adjacent.
       classes = sortClassesByPackage(classes, originalNames);
 
-      new PackageSplitPopulator(
-          filesForDistribution, classes, originalNames, null, application.dexItemFactory,
-          fillStrategy, writer.namingLens)
+      new FillFilesPopulator(filesForDistribution, classes, writer.namingLens, executorService)
           .call();
       return nameToFileMap;
     }
   }
 
   public static class MonoDexDistributor extends DistributorBase {
-    MonoDexDistributor(ApplicationWriter writer) {
+    private final ExecutorService executorService;
+
+    MonoDexDistributor(ApplicationWriter writer, ExecutorService executorService) {
       super(writer);
+      this.executorService = executorService;
     }
 
     @Override
     public Map<Integer, VirtualFile> run() throws ExecutionException, IOException {
       // Add all classes to the main dex file.
-      for (DexProgramClass programClass : classes) {
-        mainDexFile.addClass(programClass);
+      for (List<DexProgramClass> batch : Iterables.partition(classes, REFERENCE_BATCH_SIZE)) {
+        for (ClassReferences references :
+            collectReferences(batch, writer.namingLens, executorService)) {
+          mainDexFile.addClass(references);
+        }
       }
       mainDexFile.commitTransaction();
       mainDexFile.throwIfFull(false);
@@ -411,7 +443,7 @@ public class VirtualFile {
         newAssignments =
             new PackageSplitPopulator(
                 nameToFileMap, classes, originalNames, usedPrefixes, application.dexItemFactory,
-                FillStrategy.LEAVE_SPACE_FOR_GROWTH, writer.namingLens)
+                FillStrategy.LEAVE_SPACE_FOR_GROWTH, writer.namingLens, executorService)
                 .call();
         if (!newAssignments.isEmpty() && nameToFileMap.size() > 1) {
           System.err.println(" * The used package map is missing entries. The following default "
@@ -572,6 +604,33 @@ public class VirtualFile {
       clazz.collectIndexedItems(this);
     }
 
+    void addClassReferences(ClassReferences references) {
+      if (!addClass(references.clazz)) {
+        return;
+      }
+      for (DexField field : references.fields) {
+        maybeInsert(field, fields);
+      }
+      for (DexMethod method : references.methods) {
+        maybeInsert(method, methods);
+      }
+      for (DexType type : references.types) {
+        maybeInsert(type, types);
+      }
+      for (DexProto proto : references.protos) {
+        maybeInsert(proto, protos);
+      }
+      for (DexString string : references.strings) {
+        maybeInsert(string, strings);
+      }
+      for (DexCallSite callSite : references.callSites) {
+        maybeInsert(callSite, callSites);
+      }
+      for (DexMethodHandle methodHandle : references.methodHandles) {
+        maybeInsert(methodHandle, methodHandles);
+      }
+    }
+
     @Override
     public boolean addClass(DexProgramClass dexProgramClass) {
       if (base.seenClasses.contains(dexProgramClass) || classes.contains(dexProgramClass)) {
@@ -682,6 +741,128 @@ public class VirtualFile {
     }
   }
 
+  /**
+   * All items a class and its members refer to, collected once per class.
+   *
+   * <p>When a file overflows, the classes of the current transaction are added again to another
+   * file or with a different package prefix. Adding the collected references only has to check
+   * each item against the file, instead of traversing the class and the code of all its methods
+   * again.
+   */
+  private static class ClassReferences {
+
+    private final DexProgramClass clazz;
+
+    private final DexField[] fields;
+    private final DexMethod[] methods;
+    private final DexType[] types;
+    private final DexProto[] protos;
+    private final DexString[] strings;
+    private final DexCallSite[] callSites;
+    private final DexMethodHandle[] methodHandles;
+
+    private ClassReferences(DexProgramClass clazz, NamingLens namingLens) {
+      this.clazz = clazz;
+      Collector collector = new Collector(clazz, namingLens);
+      clazz.collectIndexedItems(collector);
+      fields = collector.fields.toArray(new DexField[collector.fields.size()]);
+      methods = collector.methods.toArray(new DexMethod[collector.methods.size()]);
+      types = collector.types.toArray(new DexType[collector.types.size()]);
+      protos = collector.protos.toArray(new DexProto[collector.protos.size()]);
+      strings = collector.strings.toArray(new DexString[collector.strings.size()]);
+      callSites = collector.callSites.toArray(new DexCallSite[collector.callSites.size()]);
+      methodHandles =
+          collector.methodHandles.toArray(new DexMethodHandle[collector.methodHandles.size()]);
+    }
+
+    private static class Collector implements IndexedItemCollection {
+
+      private final DexProgramClass clazz;
+      private final NamingLens namingLens;
+
+      private final List<DexField> fields = new ArrayList<>();
+      private final List<DexMethod> methods = new ArrayList<>();
+      private final List<DexType> types = new ArrayList<>();
+      private final List<DexProto> protos = new ArrayList<>();
+      private final List<DexString> strings = new ArrayList<>();
+      private final List<DexCallSite> callSites = new ArrayList<>();
+      private final List<DexMethodHandle> methodHandles = new ArrayList<>();
+
+      private final Set<IndexedDexItem> seen = Sets.newIdentityHashSet();
+
+      private Collector(DexProgramClass clazz, NamingLens namingLens) {
+        this.clazz = clazz;
+        this.namingLens = namingLens;
+      }
+
+      private <T extends IndexedDexItem> boolean addItem(T item, List<T> itemList) {
+        if (seen.add(item)) {
+          itemList.add(item);
+          return true;
+        }
+        return false;
+      }
+
+      @Override
+      public boolean addClass(DexProgramClass dexProgramClass) {
+        // Only the class itself is collected, other classes are only referenced by their type.
+        assert dexProgramClass == clazz;
+        return true;
+      }
+
+      @Override
+      public boolean addField(DexField field) {
+        return addItem(field, fields);
+      }
+
+      @Override
+      public boolean addMethod(DexMethod method) {
+        return addItem(method, methods);
+      }
+
+      @Override
+      public boolean addString(DexString string) {
+        return addItem(string, strings);
+      }
+
+      @Override
+      public boolean addProto(DexProto proto) {
+        return addItem(proto, protos);
+      }
+
+      @Override
+      public boolean addType(DexType type) {
+        return addItem(type, types);
+      }
+
+      @Override
+      public boolean addCallSite(DexCallSite callSite) {
+        return addItem(callSite, callSites);
+      }
+
+      @Override
+      public boolean addMethodHandle(DexMethodHandle methodHandle) {
+        return addItem(methodHandle, methodHandles);
+      }
+
+      @Override
+      public DexString getRenamedDescriptor(DexType type) {
+        return namingLens.lookupDescriptor(type);
+      }
+
+      @Override
+      public DexString getRenamedName(DexMethod method) {
+        assert namingLens.checkTargetCanBeTranslated(method);
+        return namingLens.lookupName(method);
+      }
+
+      @Override
+      public DexString getRenamedName(DexField field) {
+        return namingLens.lookupName(field);
+      }
+    }
+  }
+
   /**
    * Adds all classes from the given set that are covered by a corresponding package map
    * specification to the given file.
@@ -832,6 +1013,64 @@ public class VirtualFile {
     }
   }
 
+  /**
+   * Fills the files with the given classes, in the given order.
+   *
+   * <p>Unlike the {@link PackageSplitPopulator}, the populator splits packages between files, so
+   * that a file is filled up to the index limits before the next file is started. The classes are
+   * expected in package order, which still places most classes in the same file as the classes
+   * they share references with. Each class is added in a transaction of its own: the items it
+   * shares with the classes already in the file are only counted once, and a class that does not
+   * fit is moved to the next file without adding any other class again.
+   */
+  private static class FillFilesPopulator {
+
+    private final List<DexProgramClass> classes;
+    private final NamingLens namingLens;
+    private final VirtualFileCycler cycler;
+    private final ExecutorService executorService;
+
+    FillFilesPopulator(
+        Map<Integer, VirtualFile> files,
+        Collection<DexProgramClass> classes,
+        NamingLens namingLens,
+        ExecutorService executorService) {
+      this.classes = new ArrayList<>(classes);
+      this.namingLens = namingLens;
+      this.cycler = new VirtualFileCycler(files, namingLens, FillStrategy.FILL_MAX);
+      this.executorService = executorService;
+    }
+
+    void call() throws ExecutionException {
+      VirtualFile current = cycler.next();
+      for (int start = 0; start < classes.size(); start += REFERENCE_BATCH_SIZE) {
+        List<DexProgramClass> batch =
+            classes.subList(start, Math.min(start + REFERENCE_BATCH_SIZE, classes.size()));
+        for (ClassReferences references :
+            collectReferences(batch, namingLens, executorService)) {
+          current = addClass(current, references);
+        }
+      }
+    }
+
+    /** Adds the class to the given file, or to the next file if it does not fit. */
+    private VirtualFile addClass(VirtualFile current, ClassReferences references) {
+      current.addClass(references);
+      while (current.isFull()) {
+        current.abortTransaction();
+        if (current.isEmpty()) {
+          throw new InternalCompilerError(
+              "Class " + references.clazz.toString() + " does not fit into a single dex file.");
+        }
+        // The files are filled in order, so the files before the current one are full as well.
+        current = cycler.hasNext() ? cycler.next() : cycler.addFile();
+        current.addClass(references);
+      }
+      current.commitTransaction();
+      return current;
+    }
+  }
+
   /**
    * Distributes the given classes over the files in package order.
    *
@@ -861,7 +1100,14 @@ public class VirtualFile {
     private final Set<String> previousPrefixes;
     private final DexItemFactory dexItemFactory;
     private final FillStrategy fillStrategy;
+    private final NamingLens namingLens;
     private final VirtualFileCycler cycler;
+    private final ExecutorService executorService;
+
+    // References of the classes that may still have to be added again, i.e., that are not part of
+    // a committed transaction yet. They are collected in batches ahead of the class being placed.
+    private final Map<DexProgramClass, ClassReferences> references = new IdentityHashMap<>();
+    private int collectedClasses = 0;
 
     PackageSplitPopulator(
         Map<Integer, VirtualFile> files,
@@ -870,13 +1116,45 @@ public class VirtualFile {
         Set<String> previousPrefixes,
         DexItemFactory dexItemFactory,
         FillStrategy fillStrategy,
-        NamingLens namingLens) {
+        NamingLens namingLens,
+        ExecutorService executorService) {
       this.classes = new ArrayList<>(classes);
       this.originalNames = originalNames;
       this.previousPrefixes = previousPrefixes;
       this.dexItemFactory = dexItemFactory;
       this.fillStrategy = fillStrategy;
+      this.namingLens = namingLens;
       this.cycler = new VirtualFileCycler(files, namingLens, fillStrategy);
+      this.executorService = executorService;
+    }
+
+    /** Collects the references of the next batch of classes if the given class is not covered. */
+    private void ensureReferencesCollected(int classIndex) throws ExecutionException {
+      if (classIndex < collectedClasses) {
+        return;
+      }
+      int end = Math.min(classIndex + REFERENCE_BATCH_SIZE, classes.size());
+      for (ClassReferences classReferences : collectReferences(
+          classes.subList(classIndex, end), namingLens, executorService)) {
+        references.put(classReferences.clazz, classReferences);
+      }
+      collectedClasses = end;
+    }
+
+    private void addClass(VirtualFile file, DexProgramClass clazz) {
+      ClassReferences classReferences = references.get(clazz);
+      if (classReferences == null) {
+        classReferences = new ClassReferences(clazz, namingLens);
+        references.put(clazz, classReferences);
+      }
+      file.addClass(classReferences);
+    }
+
+    private void commitTransaction(VirtualFile file) {
+      for (DexProgramClass clazz : file.transaction.classes) {
+        references.remove(clazz);
+      }
+      file.commitTransaction();
     }
 
     private String getOriginalName(DexProgramClass clazz) {
@@ -884,7 +1162,7 @@ public class VirtualFile {
     }
 
     @Override
-    public Map<String, Integer> call() throws IOException {
+    public Map<String, Integer> call() throws ExecutionException, IOException {
       int prefixLength = MINIMUM_PREFIX_LENGTH;
       int transactionStartIndex = 0;
       int fileStartIndex = 0;
@@ -894,10 +1172,11 @@ public class VirtualFile {
       List<DexProgramClass> nonPackageClasses = new ArrayList<>();
       for (int classIndex = 0; classIndex < classes.size(); classIndex++) {
         DexProgramClass clazz = classes.get(classIndex);
+        ensureReferencesCollected(classIndex);
         String originalName = getOriginalName(clazz);
         if (!PackageMapPopulator.coveredByPrefix(originalName, currentPrefix)) {
           if (currentPrefix != null) {
-            current.commitTransaction();
+            commitTransaction(current);
             // Reset the cycler to again iterate over all files, starting with the current one.
             cycler.restart();
             assert !newPackageAssignments.containsKey(currentPrefix);
@@ -929,7 +1208,7 @@ public class VirtualFile {
         }
         if (currentPrefix != null) {
           assert clazz.superType != null || clazz.type == dexItemFactory.objectType;
-          current.addClass(clazz);
+          addClass(current, clazz);
         } else {
           assert clazz.superType != null;
           // We don't have a package, add this to a list of classes that we will add last.
@@ -970,7 +1249,7 @@ public class VirtualFile {
           assert current != null;
         }
       }
-      current.commitTransaction();
+      commitTransaction(current);
       assert !newPackageAssignments.containsKey(currentPrefix);
       if (currentPrefix != null) {
         newPackageAssignments.put(currentPrefix, current.id);
@@ -990,19 +1269,19 @@ public class VirtualFile {
         if (current.isFilledEnough(fillStrategy)) {
           current = getVirtualFile(cycler);
         }
-        current.addClass(clazz);
+        addClass(current, clazz);
         while (current.isFull()) {
           // This only happens if we have a huge class, that takes up more than 20% of a dex file.
           current.abortTransaction();
           current = getVirtualFile(cycler);
           boolean wasEmpty = current.isEmpty();
-          current.addClass(clazz);
+          addClass(current, clazz);
           if (wasEmpty && current.isFull()) {
             throw new InternalCompilerError(
                 "Class " + clazz.toString() + " does not fit into a single dex file.");
           }
         }
-        current.commitTransaction();
+        commitTransaction(current);
       }
     }
 
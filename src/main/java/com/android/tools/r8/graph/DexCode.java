@@ -3,7 +3,9 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.graph;
 
+import com.android.tools.r8.code.EncodedInstructions;
 import com.android.tools.r8.code.Instruction;
+import com.android.tools.r8.code.InstructionFactory;
 import com.android.tools.r8.code.ReturnVoid;
 import com.android.tools.r8.code.SwitchPayload;
 import com.android.tools.r8.dex.IndexedItemCollection;
@@ -33,10 +35,19 @@ public class DexCode extends Code {
   public final int outgoingRegisterSize;
   public final Try[] tries;
   public final TryHandler[] handlers;
-  public final Instruction[] instructions;
 
-  public final DexString highestSortingString;
+  // Code read from a dex file is kept in its encoded form until the instructions are first
+  // requested. Code that is passed through unchanged, as in D8 for dex inputs, is written
+  // straight from the encoded form and is never decoded at all. Code built by the DexBuilder is
+  // encoded with tables of its own once it is built, see encodeInstructions().
+  private volatile Instruction[] instructions;
+  private volatile EncodedInstructions encodedInstructions;
+
+  private DexString highestSortingString;
   private DexDebugInfo debugInfo;
+  // The uses registered by the instructions, recorded on the first traversal and replayed by
+  // the later ones. The instructions of a code object are not changed once it is created.
+  private volatile ReferenceSummary referenceSummary;
 
   public DexCode(
       int registerSize,
@@ -58,6 +69,85 @@ public class DexCode extends Code {
     hashCode();  // Cache the hash code eagerly.
   }
 
+  public DexCode(
+      int registerSize,
+      int insSize,
+      int outsSize,
+      EncodedInstructions encodedInstructions,
+      Try[] tries,
+      TryHandler[] handlers,
+      DexDebugInfo debugInfo) {
+    this.incomingRegisterSize = insSize;
+    this.registerSize = registerSize;
+    this.outgoingRegisterSize = outsSize;
+    this.encodedInstructions = encodedInstructions;
+    this.tries = tries;
+    this.handlers = handlers;
+    this.debugInfo = debugInfo;
+    // The hash code depends on the decoded instructions, so it is computed on first use.
+  }
+
+  public Instruction[] getInstructions() {
+    Instruction[] result = instructions;
+    return result != null ? result : decodeInstructions();
+  }
+
+  private synchronized Instruction[] decodeInstructions() {
+    if (instructions == null) {
+      InstructionFactory factory = new InstructionFactory();
+      Instruction[] decoded = encodedInstructions.decode(factory);
+      highestSortingString = factory.getHighestSortingString();
+      instructions = decoded;
+      encodedInstructions = null;
+    }
+    return instructions;
+  }
+
+  /**
+   * Replaces the instructions of built code by their encoded form, which takes a fraction of the
+   * memory. The hash code must have been computed from the instructions before. Code that
+   * references too many items to be encoded on its own is kept as instructions.
+   */
+  public synchronized void encodeInstructions() {
+    assert instructions != null && encodedInstructions == null;
+    EncodedInstructions encoded = EncodedInstructions.encode(instructions);
+    if (encoded != null) {
+      encodedInstructions = encoded;
+      instructions = null;
+    }
+  }
+
+  /**
+   * Returns the instructions, without keeping them if they are decoded from built code. Used for
+   * inspections that do not justify keeping an object per instruction for the rest of the
+   * compilation.
+   */
+  private Instruction[] peekInstructions() {
+    EncodedInstructions encoded = encodedInstructions;
+    if (encoded != null && encoded.hasCodeLocalItems()) {
+      return encoded.decode(new InstructionFactory());
+    }
+    return getInstructions();
+  }
+
+  /**
+   * Returns the instructions in their encoded form if they have not been decoded yet, and null
+   * otherwise.
+   */
+  public EncodedInstructions getEncodedInstructions() {
+    return encodedInstructions;
+  }
+
+  public DexString getHighestSortingString() {
+    EncodedInstructions encoded = encodedInstructions;
+    if (encoded != null) {
+      return encoded.getHighestSortingString();
+    }
+    // Decoding the instructions determines the highest sorting string they reference.
+    getInstructions();
+    return highestSortingString;
+  }
+
   @Override
   public boolean isDexCode() {
     return true;
@@ -65,7 +155,8 @@ public class DexCode extends Code {
 
   @Override
   public int estimatedSizeForInlining() {
-    return instructions.length;
+    EncodedInstructions encoded = encodedInstructions;
+    return encoded != null ? encoded.instructionCount() : getInstructions().length;
   }
 
   @Override
@@ -93,6 +184,11 @@ public class DexCode extends Code {
   }
 
   public int codeSizeInBytes() {
+    EncodedInstructions encoded = encodedInstructions;
+    if (encoded != null) {
+      return encoded.size();
+    }
+    Instruction[] instructions = getInstructions();
     Instruction last = instructions[instructions.length - 1];
     return last.getOffset() + last.getSize();
   }
@@ -102,7 +198,7 @@ public class DexCode extends Code {
     return incomingRegisterSize * 2
         + registerSize * 3
         + outgoingRegisterSize * 5
-        + Arrays.hashCode(instructions) * 7
+        + Arrays.hashCode(peekInstructions()) * 7
         + ((debugInfo == null) ? 0 : debugInfo.hashCode()) * 11
         + Arrays.hashCode(tries) * 13
         + Arrays.hashCode(handlers) * 17;
@@ -137,12 +233,19 @@ public class DexCode extends Code {
         return false;
       }
       // Save the most expensive operation to last.
-      return Arrays.equals(instructions, o.instructions);
+      EncodedInstructions encoded = encodedInstructions;
+      EncodedInstructions otherEncoded = o.encodedInstructions;
+      if (encoded != null && encoded.hasCodeLocalItems()
+          && otherEncoded != null && otherEncoded.hasCodeLocalItems()) {
+        return encoded.contentEquals(otherEncoded);
+      }
+      return Arrays.equals(peekInstructions(), o.peekInstructions());
     }
     return false;
   }
 
   boolean isEmptyVoidMethod() {
+    Instruction[] instructions = peekInstructions();
     return instructions.length == 1 && instructions[0] instanceof ReturnVoid;
   }
 
@@ -164,9 +267,13 @@ public class DexCode extends Code {
 
   @Override
   public void registerReachableDefinitions(UseRegistry registry) {
-    for (Instruction insn : instructions) {
-      insn.registerUse(registry);
+    ReferenceSummary summary = referenceSummary;
+    if (summary == null) {
+      // Racing threads compute equal summaries, so it does not matter which one is kept.
+      summary = ReferenceSummary.create(peekInstructions());
+      referenceSummary = summary;
     }
+    summary.registerUses(registry);
   }
 
   public String toString() {
@@ -187,7 +294,7 @@ public class DexCode extends Code {
 
     // Collect payload users.
     Map<Integer, Instruction> payloadUsers = new HashMap<>();
-    for (Instruction dex : instructions) {
+    for (Instruction dex : getInstructions()) {
       if (dex.hasPayload()) {
         payloadUsers.put(dex.getOffset() + dex.getPayloadOffset(), dex);
       }
@@ -200,7 +307,7 @@ public class DexCode extends Code {
       debugInfo = debugInfoIterator.hasNext() ? debugInfoIterator.next() : null;
     }
     int instructionNumber = 0;
-    for (Instruction insn : instructions) {
+    for (Instruction insn : getInstructions()) {
       while (debugInfo != null && debugInfo.address == insn.getOffset()) {
         builder.append("         ").append(debugInfo.toString(false)).append("\n");
         debugInfo = debugInfoIterator.hasNext() ? debugInfoIterator.next() : null;
@@ -244,7 +351,7 @@ public class DexCode extends Code {
     Map<Integer, Instruction> payloadUsers = new HashMap<>();
     Set<Integer> labledTargets = new HashSet<>();
     // Collect payload users and labeled targets for non-payload instructions.
-    for (Instruction dex : instructions) {
+    for (Instruction dex : getInstructions()) {
       int[] targets = dex.getTargets();
       if (targets != Instruction.NO_TARGETS && targets != Instruction.EXIT_TARGET) {
         assert targets.length <= 2;
@@ -256,7 +363,7 @@ public class DexCode extends Code {
       }
     }
     // Collect labeled targets for payload instructions.
-    for (Instruction dex : instructions) {
+    for (Instruction dex : getInstructions()) {
       if (dex.isSwitchPayload()) {
         Instruction payloadUser = payloadUsers.get(dex.getOffset());
         if (dex instanceof SwitchPayload) {
@@ -268,7 +375,7 @@ public class DexCode extends Code {
       }
     }
     // Generate smali for all instructions.
-    for (Instruction dex : instructions) {
+    for (Instruction dex : getInstructions()) {
       if (labledTargets.contains(dex.getOffset())) {
         builder.append("  :label_");
         builder.append(dex.getOffset());
@@ -300,8 +407,13 @@ public class DexCode extends Code {
   }
 
   public void collectIndexedItems(IndexedItemCollection indexedItems) {
-    for (Instruction insn : instructions) {
-      insn.collectIndexedItems(indexedItems);
+    EncodedInstructions encoded = encodedInstructions;
+    if (encoded != null) {
+      encoded.collectIndexedItems(indexedItems);
+    } else {
+      for (Instruction insn : getInstructions()) {
+        insn.collectIndexedItems(indexedItems);
+      }
     }
     if (debugInfo != null) {
       debugInfo.collectIndexedItems(indexedItems);
@@ -14,6 +14,10 @@ public class DexField extends Descriptor<DexEncodedField, DexField> implements
   public final DexType type;
   public final DexString name;
 
+  // The renamed name of this field in the naming lens of the minifier.
+  private NamingLens renamingLens;
+  private DexString renamedName;
+
   DexField(DexType clazz, DexType type, DexString name) {
     this.clazz = clazz;
     this.type = type;
@@ -123,4 +127,13 @@ public class DexField extends Descriptor<DexEncodedField, DexField> implements
   public String toSourceString() {
     return type.toSourceString() + " " + clazz.toSourceString() + "." + name.toSourceString();
   }
+
+  public void setRenamedName(NamingLens lens, DexString renamedName) {
+    this.renamingLens = lens;
+    this.renamedName = renamedName;
+  }
+
+  public DexString getRenamedName(NamingLens lens) {
+    return renamingLens == lens ? renamedName : null;
+  }
 }
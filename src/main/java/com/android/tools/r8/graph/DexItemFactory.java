@@ -15,17 +15,26 @@ import com.android.tools.r8.graph.DexDebugEvent.SetFile;
 import com.android.tools.r8.graph.DexDebugEvent.SetPrologueEnd;
 import com.android.tools.r8.graph.DexMethodHandle.MethodHandleType;
 import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 public class DexItemFactory {
 
@@ -50,6 +59,18 @@ public class DexItemFactory {
 
   boolean sorted = false;
 
+  private static final int PARALLEL_SORT_CHUNK_SIZE = 1 << 14;
+
+  // The items in the order of the last sort, and the naming lens it used. If only a few items are
+  // added before sorting again with the same naming lens, they are merged into the last order.
+  // Cleared with clearSortedItems() by users that do not sort again.
+  private NamingLens sortedNamingLens;
+  private DexString[] sortedStrings;
+  private DexType[] sortedTypes;
+  private DexField[] sortedFields;
+  private DexProto[] sortedProtos;
+  private DexMethod[] sortedMethods;
+
   public static final DexType catchAllType = new DexType(new DexString("CATCH_ALL"));
   private static final Set<DexItem> internalSentinels = ImmutableSet.of(catchAllType);
 
@@ -470,26 +491,166 @@ public class DexItemFactory {
     builder.append(first == '[' ? 'L' : first);
   }
 
-  private static <S extends PresortedComparable<S>> void assignSortedIndices(Collection<S> items,
-      NamingLens namingLens) {
-    List<S> sorted = new ArrayList<>(items);
-    sorted.sort((a, b) -> a.layeredCompareTo(b, namingLens));
-    int i = 0;
-    for (S value : sorted) {
-      value.setSortedIndex(i++);
+  /**
+   * Sorts the given items, assigns their sorted indices and returns them in sorted order.
+   *
+   * <p>If the items were sorted before with the same naming lens, only the items added since are
+   * sorted. They are then merged into the previous order, which is still valid as the order of
+   * the items they are sorted by has not changed either.
+   */
+  private static <S extends PresortedComparable<S>> S[] assignSortedIndices(
+      Collection<S> items, S[] previouslySorted, IntFunction<S[]> arrayFactory,
+      NamingLens namingLens, ExecutorService executorService) throws ExecutionException {
+    Comparator<S> comparator = (a, b) -> a.layeredCompareTo(b, namingLens);
+    S[] sorted;
+    if (previouslySorted == null) {
+      sorted = items.toArray(arrayFactory.apply(items.size()));
+      sortInParallel(sorted, comparator, executorService);
+    } else {
+      Set<S> previous = Sets.newIdentityHashSet();
+      Collections.addAll(previous, previouslySorted);
+      List<S> added = new ArrayList<>();
+      for (S item : items) {
+        if (!previous.contains(item)) {
+          added.add(item);
+        }
+      }
+      S[] sortedAdded = added.toArray(arrayFactory.apply(added.size()));
+      sortInParallel(sortedAdded, comparator, executorService);
+      sorted = Arrays.copyOf(previouslySorted, previouslySorted.length + sortedAdded.length);
+      merge(previouslySorted, 0, previouslySorted.length, sortedAdded, 0, sortedAdded.length,
+          sorted, 0, comparator);
+    }
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i].setSortedIndex(i);
+    }
+    return sorted;
+  }
+
+  /**
+   * Sorts chunks of the items on the executor and merges them pairwise, also on the executor.
+   * Sorts on the calling thread if no executor is given.
+   */
+  private static <S> void sortInParallel(
+      S[] items, Comparator<S> comparator, ExecutorService executorService)
+      throws ExecutionException {
+    if (executorService == null || items.length <= PARALLEL_SORT_CHUNK_SIZE) {
+      Arrays.sort(items, comparator);
+      return;
+    }
+    List<Future<?>> futures = new ArrayList<>();
+    for (int start = 0; start < items.length; start += PARALLEL_SORT_CHUNK_SIZE) {
+      int from = start;
+      int to = Math.min(start + PARALLEL_SORT_CHUNK_SIZE, items.length);
+      futures.add(executorService.submit(() -> Arrays.sort(items, from, to, comparator)));
+    }
+    ThreadUtils.awaitFutures(futures);
+    S[] source = items;
+    S[] target = Arrays.copyOf(items, items.length);
+    for (int width = PARALLEL_SORT_CHUNK_SIZE; width < items.length; width *= 2) {
+      futures.clear();
+      for (int start = 0; start < items.length; start += 2 * width) {
+        int from = start;
+        int middle = Math.min(start + width, items.length);
+        int to = Math.min(start + 2 * width, items.length);
+        S[] currentSource = source;
+        S[] currentTarget = target;
+        futures.add(executorService.submit(() -> merge(currentSource, from, middle,
+            currentSource, middle, to, currentTarget, from, comparator)));
+      }
+      ThreadUtils.awaitFutures(futures);
+      S[] merged = target;
+      target = source;
+      source = merged;
+    }
+    if (source != items) {
+      System.arraycopy(source, 0, items, 0, items.length);
+    }
+  }
+
+  private static <S> void merge(S[] first, int firstStart, int firstEnd,
+      S[] second, int secondStart, int secondEnd, S[] target, int targetStart,
+      Comparator<S> comparator) {
+    int i = firstStart;
+    int j = secondStart;
+    int k = targetStart;
+    while (i < firstEnd && j < secondEnd) {
+      // Take from the first range on ties, to keep the merge stable.
+      target[k++] = comparator.compare(second[j], first[i]) < 0 ? second[j++] : first[i++];
+    }
+    while (i < firstEnd) {
+      target[k++] = first[i++];
+    }
+    while (j < secondEnd) {
+      target[k++] = second[j++];
     }
   }
 
   synchronized public void sort(NamingLens namingLens) {
+    try {
+      sort(namingLens, null);
+    } catch (ExecutionException e) {
+      // Sorting on the calling thread does not use futures.
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Assigns the sorted indices of all items.
+   *
+   * <p>Each kind of item is sorted by the indices of the items it refers to. Strings and types
+   * are sorted first, and then fields concurrently with protos and methods. The individual sorts
+   * are split into chunks if an executor is given.
+   */
+  synchronized public void sort(NamingLens namingLens, ExecutorService executorService)
+      throws ExecutionException {
     assert !sorted;
-    assignSortedIndices(strings.values(), namingLens);
-    assignSortedIndices(types.values(), namingLens);
-    assignSortedIndices(fields.values(), namingLens);
-    assignSortedIndices(protos.values(), namingLens);
-    assignSortedIndices(methods.values(), namingLens);
+    if (namingLens != sortedNamingLens) {
+      sortedStrings = null;
+      sortedTypes = null;
+      sortedFields = null;
+      sortedProtos = null;
+      sortedMethods = null;
+      sortedNamingLens = namingLens;
+    }
+    sortedStrings = assignSortedIndices(
+        strings.values(), sortedStrings, DexString[]::new, namingLens, executorService);
+    sortedTypes = assignSortedIndices(
+        types.values(), sortedTypes, DexType[]::new, namingLens, executorService);
+    Future<DexField[]> fieldsFuture = null;
+    if (executorService == null) {
+      sortedFields = assignSortedIndices(
+          fields.values(), sortedFields, DexField[]::new, namingLens, null);
+    } else {
+      // The fields are sorted on a single thread, as the executor may not have a thread left to
+      // sort the chunks while the field task is waiting for them.
+      DexField[] previousFields = sortedFields;
+      fieldsFuture = executorService.submit(() -> assignSortedIndices(
+          fields.values(), previousFields, DexField[]::new, namingLens, null));
+    }
+    sortedProtos = assignSortedIndices(
+        protos.values(), sortedProtos, DexProto[]::new, namingLens, executorService);
+    sortedMethods = assignSortedIndices(
+        methods.values(), sortedMethods, DexMethod[]::new, namingLens, executorService);
+    if (fieldsFuture != null) {
+      sortedFields = ThreadUtils.awaitFutures(Collections.singletonList(fieldsFuture)).get(0);
+    }
     sorted = true;
   }
 
+  /**
+   * Drops the items kept in the order of the last sort. The sorted indices remain assigned, but
+   * the next sort has to sort all items again.
+   */
+  synchronized public void clearSortedItems() {
+    sortedNamingLens = null;
+    sortedStrings = null;
+    sortedTypes = null;
+    sortedFields = null;
+    sortedProtos = null;
+    sortedMethods = null;
+  }
+
   synchronized public void resetSortedIndices() {
     if (!sorted) {
       return;
@@ -16,6 +16,9 @@ public class DexMethod extends Descriptor<DexEncodedMethod, DexMethod>
 
   // Caches used during processing.
   private DexEncodedMethod singleTargetCache;
+  // The renamed name of this method in the naming lens of the minifier.
+  private NamingLens renamingLens;
+  private DexString renamedName;
 
   DexMethod(DexType holder, DexProto proto, DexString name) {
     this.holder = holder;
@@ -158,4 +161,13 @@ public class DexMethod extends Descriptor<DexEncodedMethod, DexMethod>
     assert isSingleVirtualMethodCached();
     return singleTargetCache == DexEncodedMethod.SENTINEL ? null : singleTargetCache;
   }
+
+  public void setRenamedName(NamingLens lens, DexString renamedName) {
+    this.renamingLens = lens;
+    this.renamedName = renamedName;
+  }
+
+  public DexString getRenamedName(NamingLens lens) {
+    return renamingLens == lens ? renamedName : null;
+  }
 }
@@ -13,17 +13,46 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
 
   public static final DexString[] EMPTY_ARRAY = new DexString[]{};
 
+  private static final int SORT_KEY_BYTES = 8;
+
   public final int size;  // size of this string, in UTF-16
   public final byte[] content;
+  // The leading bytes of the content, see computeSortKey.
+  private final long sortKey;
 
   DexString(int size, byte[] content) {
     this.size = size;
     this.content = content;
+    this.sortKey = computeSortKey(content);
   }
 
   public DexString(String string) {
     this.size = string.length();
     this.content = encode(string);
+    this.sortKey = computeSortKey(content);
+  }
+
+  /**
+   * Packs the first bytes of the content into a long, such that comparing the keys as unsigned
+   * values orders strings as {@link #slowCompareTo(DexString)} does whenever the keys differ.
+   *
+   * <p>The key ends at the terminating zero, and also at the two byte encoding c0 80 of the null
+   * character, as that sorts lower than all other characters. Both are followed by zero bytes.
+   */
+  private static long computeSortKey(byte[] content) {
+    long key = 0;
+    for (int i = 0; i < SORT_KEY_BYTES; i++) {
+      key <<= 8;
+      if (i < content.length) {
+        int b = content[i] & 0xff;
+        if (b == 0 || b == 0xc0) {
+          key <<= 8 * (SORT_KEY_BYTES - 1 - i);
+          break;
+        }
+        key |= b;
+      }
+    }
+    return key;
   }
 
   public int computeHashCode() {
@@ -143,13 +172,19 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
 
   @Override
   public int slowCompareTo(DexString other) {
+    // Most strings differ in their first bytes, which is decided by the sort keys.
+    if (sortKey != other.sortKey) {
+      return Long.compareUnsigned(sortKey, other.sortKey);
+    }
     // Compare the bytes, as comparing UTF-8 encoded strings as strings of unsigned bytes gives
     // the same result as comparing the corresponding Unicode strings lexicographically by
     // codepoint. The only complication is the MUTF-8 encoding have the two byte encoding c0 80 of
     // the null character (U+0000) to allow embedded null characters.
     // Supplementary characters (unicode code points above U+FFFF) are always represented as
     // surrogate pairs and are compared using UTF-16 code units as per Java string semantics.
-    int index = 0;
+    // If the last byte of the equal keys is set, neither key ended early and the bytes it covers
+    // are equal.
+    int index = (sortKey & 0xff) != 0 ? SORT_KEY_BYTES : 0;
     while (true) {
       char b1 = (char) (content[index] & 0xff);
       char b2 = (char) (other.content[index] & 0xff);
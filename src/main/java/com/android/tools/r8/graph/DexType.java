@@ -31,6 +31,9 @@ public class DexType extends IndexedDexItem implements PresortedComparable<DexTy
   private String toStringCache = null;
   private int hierarchyLevel = UNKNOWN_LEVEL;
   private Set<DexType> directSubtypes = NO_DIRECT_SUBTYPE;
+  // The renamed descriptor of this type in the naming lens of the minifier.
+  private NamingLens renamingLens;
+  private DexString renamedDescriptor;
 
   DexType(DexString descriptor) {
     assert !descriptor.toString().contains(".");
@@ -450,4 +453,13 @@ public class DexType extends IndexedDexItem implements PresortedComparable<DexTy
     assert hierarchyLevel != UNKNOWN_LEVEL;
     return type.directSubtypes.contains(this);
   }
+
+  public void setRenamedDescriptor(NamingLens lens, DexString renamedDescriptor) {
+    this.renamingLens = lens;
+    this.renamedDescriptor = renamedDescriptor;
+  }
+
+  public DexString getRenamedDescriptor(NamingLens lens) {
+    return renamingLens == lens ? renamedDescriptor : null;
+  }
 }
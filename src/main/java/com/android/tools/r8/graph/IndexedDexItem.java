@@ -6,6 +6,7 @@ package com.android.tools.r8.graph;
 import com.android.tools.r8.dex.IndexedItemCollection;
 import com.android.tools.r8.dex.MixedSectionCollection;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Subset of dex items that are referenced by some table index.
@@ -26,15 +27,23 @@ public abstract class IndexedDexItem extends CachedHashValueDexItem implements P
    * <li>A zero or greater value when this item has been associated by the virtual file
    * and the value denotes the assigned index.
    * </ul>
-   * <p> Note that, in case of multiple files, for a specific IndexedDexItem, we may not have
-   * as many entries in the index as there are files (we only expand when we need to). If we lookup
-   * the value of an entry that is out of bounds it is equivalent to {@link #UNASSOCIATED_VALUE}
+   * <p>The value for file id 0 is kept in {@link #mainFileIndex}, so the common single file case
+   * does not allocate anything. The values for the other file ids are stored in chunks, chunk
+   * {@code k} holding the values of the {@code 2^k} file ids starting at {@code 2^k}. We only add
+   * chunks when we need to. If we lookup the value of a file id that is not covered by a chunk it
+   * is equivalent to {@link #UNASSOCIATED_VALUE}.
    *
-   * <p>This field is initialized on first write in {@link #updateVirtualFileData(int)}}. It
-   * is assumed that multiple files are processed concurrently and thus the allocation of the
-   * array is synchronized. However, for any a given file id, sequential access is assumed.
+   * <p>It is assumed that multiple files are processed concurrently. Adding chunks never moves a
+   * value, so the array of chunks is replaced with a compare-and-set without locking and without
+   * losing values written concurrently for other files. For any a given file id, sequential access
+   * is assumed.
    */
-  private int[] virtualFileIndexes;
+  private int mainFileIndex = UNASSOCIATED_VALUE;
+  private volatile int[][] virtualFileIndexes;
+
+  private static final AtomicReferenceFieldUpdater<IndexedDexItem, int[][]>
+      virtualFileIndexesUpdater = AtomicReferenceFieldUpdater.newUpdater(
+          IndexedDexItem.class, int[][].class, "virtualFileIndexes");
 
   public abstract void collectIndexedItems(IndexedItemCollection indexedItems);
 
@@ -67,39 +76,54 @@ public abstract class IndexedDexItem extends CachedHashValueDexItem implements P
    * assigned to the file id.
    */
   public boolean assignToVirtualFile(int virtualFileId) {
-    // Fast lock-free check whether already assigned.
-    if (hasVirtualFileData(virtualFileId)) {
+    if (virtualFileId == 0) {
+      if (mainFileIndex != UNASSOCIATED_VALUE) {
+        return false;
+      }
+      mainFileIndex = ASSOCIATED_VALUE;
+      return true;
+    }
+    int chunk = chunkFor(virtualFileId);
+    int[] indexes = ensureChunk(chunk)[chunk];
+    int offset = offsetInChunk(virtualFileId, chunk);
+    if (indexes[offset] != UNASSOCIATED_VALUE) {
       return false;
     }
-    return updateVirtualFileData(virtualFileId);
+    indexes[offset] = ASSOCIATED_VALUE;
+    return true;
   }
 
   /**
-   * Assigns this item to the given file id.
-   *
-   * <p>As a side effect, the {@link #virtualFileIndexes} field might be initialized or expanded.
-   * Hence this method is synchronized. Note that the field is queried without synchronization.
-   * Therefor it has to remain in a valid state at all times and must transition atomically from
-   * null to an initialized allocated value.
+   * Returns the chunks of {@link #virtualFileIndexes}, adding chunks up to the given one if
+   * needed.
    */
-  private synchronized boolean updateVirtualFileData(int virtualFileId) {
-    if (virtualFileIndexes == null) {
-      int[] fileIndices = new int[virtualFileId + 1];
-      Arrays.fill(fileIndices, UNASSOCIATED_VALUE);
-      // This has to be an atomic transition from null to an initialized array.
-      virtualFileIndexes = fileIndices;
+  private int[][] ensureChunk(int chunk) {
+    while (true) {
+      int[][] chunks = virtualFileIndexes;
+      if (chunks != null && chunk < chunks.length) {
+        return chunks;
+      }
+      int oldLength = chunks == null ? 0 : chunks.length;
+      int[][] newChunks = chunks == null ? new int[chunk + 1][] : Arrays.copyOf(chunks, chunk + 1);
+      for (int i = oldLength; i <= chunk; i++) {
+        int[] indexes = new int[1 << i];
+        Arrays.fill(indexes, UNASSOCIATED_VALUE);
+        newChunks[i] = indexes;
+      }
+      // If another file added chunks concurrently, retry with the chunks it added.
+      if (virtualFileIndexesUpdater.compareAndSet(this, chunks, newChunks)) {
+        return newChunks;
+      }
     }
-    // We increased the number of files, increase the index size.
-    if (virtualFileId >= virtualFileIndexes.length) {
-      int oldLength = virtualFileIndexes.length;
-      int[] fileIndices = Arrays.copyOf(virtualFileIndexes, virtualFileId + 1);
-      Arrays.fill(fileIndices, oldLength, virtualFileId + 1, UNASSOCIATED_VALUE);
-      virtualFileIndexes = fileIndices;
-    }
-    assert virtualFileId < virtualFileIndexes.length;
-    boolean wasAdded = virtualFileIndexes[virtualFileId] == UNASSOCIATED_VALUE;
-    virtualFileIndexes[virtualFileId] = ASSOCIATED_VALUE;
-    return wasAdded;
+  }
+
+  private static int chunkFor(int virtualFileId) {
+    assert virtualFileId > 0;
+    return 31 - Integer.numberOfLeadingZeros(virtualFileId);
+  }
+
+  private static int offsetInChunk(int virtualFileId, int chunk) {
+    return virtualFileId - (1 << chunk);
   }
 
   /**
@@ -109,9 +133,17 @@ public abstract class IndexedDexItem extends CachedHashValueDexItem implements P
    * #assignToVirtualFile(int)}.
    */
   public void assignVirtualFileIndex(int virtualFileId, int index) {
-    assert virtualFileIndexes != null;
-    assert virtualFileIndexes[virtualFileId] < MIN_VALID_VALUE;
-    virtualFileIndexes[virtualFileId] = index;
+    if (virtualFileId == 0) {
+      assert mainFileIndex < MIN_VALID_VALUE;
+      mainFileIndex = index;
+      return;
+    }
+    int[][] chunks = virtualFileIndexes;
+    int chunk = chunkFor(virtualFileId);
+    assert chunks != null && chunk < chunks.length;
+    int offset = offsetInChunk(virtualFileId, chunk);
+    assert chunks[chunk][offset] < MIN_VALID_VALUE;
+    chunks[chunk][offset] = index;
   }
 
   /**
@@ -119,14 +151,16 @@ public abstract class IndexedDexItem extends CachedHashValueDexItem implements P
    * #UNASSOCIATED_VALUE} if the item is not associated to the given file id.
    */
   public int getVirtualFileIndex(int virtualFileId) {
-    if (virtualFileIndexes == null) {
-      return UNASSOCIATED_VALUE;
+    if (virtualFileId == 0) {
+      return mainFileIndex;
     }
-    // If more files were added, but this entry not associated with it, we would not have extended
-    // the size of the array. So if the {@link virtualFileId} is out of bounds, it means
+    int[][] chunks = virtualFileIndexes;
+    int chunk = chunkFor(virtualFileId);
+    // If more files were added, but this entry not associated with it, we would not have added
+    // the chunk. So if the {@link virtualFileId} is not covered, it means
     // {@link #UNASSOCIATED_VALUE}
-    return virtualFileIndexes.length > virtualFileId
-        ? virtualFileIndexes[virtualFileId]
+    return chunks != null && chunk < chunks.length
+        ? chunks[chunk][offsetInChunk(virtualFileId, chunk)]
         : UNASSOCIATED_VALUE;
   }
 
@@ -63,7 +63,7 @@ public class JarClassFileReader {
   public void read(String file, ClassKind classKind, InputStream input) throws IOException {
     ClassReader reader = new ClassReader(input);
     reader.accept(new CreateDexClassVisitor(
-        file, classKind, reader.b, application, classConsumer), SKIP_FRAMES);
+        file, classKind, reader, application, classConsumer), SKIP_FRAMES);
   }
 
   private static DexAccessFlags createAccessFlags(int access) {
@@ -118,14 +118,14 @@ public class JarClassFileReader {
     public CreateDexClassVisitor(
         String file,
         ClassKind classKind,
-        byte[] classCache,
+        ClassReader classReader,
         JarApplicationReader application,
         Consumer<DexClass> classConsumer) {
       super(ASM5);
       this.file = file;
       this.classKind = classKind;
       this.classConsumer = classConsumer;
-      this.context.classCache = classCache;
+      this.context.classReader = classReader;
       this.application = application;
     }
 
@@ -258,9 +258,6 @@ public class JarClassFileReader {
           instanceFields.toArray(new DexEncodedField[instanceFields.size()]),
           directMethods.toArray(new DexEncodedMethod[directMethods.size()]),
           virtualMethods.toArray(new DexEncodedMethod[virtualMethods.size()]));
-      if (classKind == ClassKind.PROGRAM) {
-        context.owner = clazz.asProgramClass();
-      }
       classConsumer.accept(clazz);
     }
 
@@ -391,6 +388,7 @@ public class JarClassFileReader {
     private final String name;
     private final String desc;
     private final CreateDexClassVisitor parent;
+    private final int methodIndex;
     private final int parameterCount;
     private List<DexAnnotation> annotations = null;
     private DexValue defaultAnnotation = null;
@@ -406,6 +404,7 @@ public class JarClassFileReader {
       this.name = name;
       this.desc = desc;
       this.parent = parent;
+      this.methodIndex = parent.context.methodCount++;
       parameterCount = Type.getArgumentTypes(desc).length;
       if (exceptions != null && exceptions.length > 0) {
         DexValue[] values = new DexValue[exceptions.length];
@@ -512,7 +511,7 @@ public class JarClassFileReader {
       if (!flags.isAbstract()
           && !flags.isNative()
           && parent.classKind == ClassKind.PROGRAM) {
-        code = new JarCode(method, parent.context, parent.application);
+        code = new JarCode(method, methodIndex, parent.context, parent.application);
       }
       DexAnnotationSetRefList parameterAnnotationSets;
       if (parameterAnnotations == null) {
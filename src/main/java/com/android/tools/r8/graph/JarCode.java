@@ -13,7 +13,6 @@ import com.android.tools.r8.naming.ClassNameMapper;
 import com.android.tools.r8.utils.InternalOptions;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.IdentityHashMap;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
@@ -27,25 +26,28 @@ public class JarCode extends Code {
 
   public static class ReparseContext {
 
-    // This will hold the content of the whole class. Once all the methods of the class are swapped
-    // from this to the actual JarCode, no other references would be left and the content can be
-    // GC'd.
-    public byte[] classCache;
-    public DexProgramClass owner;
-    private IdentityHashMap<DexMethod, JarCode> lookupMap = new IdentityHashMap<>();
+    // This will hold the reader of the whole class, which has already indexed the constant pool
+    // and caches the strings it has read. The methods are parsed from it on demand. Once the
+    // JarCode of all methods of the class has been replaced, no other references would be left
+    // and the reader can be GC'd.
+    public ClassReader classReader;
+    // The number of methods of the class that have been read so far.
+    int methodCount = 0;
   }
 
   private final DexType clazz;
-  private MethodNode node;
-  private ReparseContext context;
+  // The position of the method in the methods of the class file.
+  private final int methodIndex;
+  private final ReparseContext context;
 
   private final JarApplicationReader application;
 
-  public JarCode(DexMethod method, ReparseContext context, JarApplicationReader application) {
+  public JarCode(DexMethod method, int methodIndex, ReparseContext context,
+      JarApplicationReader application) {
     this.clazz = method.getHolder();
+    this.methodIndex = methodIndex;
     this.context = context;
     this.application = application;
-    context.lookupMap.put(method, this);
   }
 
   @Override
@@ -60,54 +62,44 @@ public class JarCode extends Code {
 
   @Override
   protected int computeHashCode() {
-    triggerDelayedParsingIfNeccessary();
-    return node.hashCode();
+    return System.identityHashCode(this);
   }
 
   @Override
   protected boolean computeEquals(Object other) {
-    triggerDelayedParsingIfNeccessary();
-    if (this == other) {
-      return true;
-    }
-    if (other instanceof JarCode) {
-      JarCode o = (JarCode) other;
-      o.triggerDelayedParsingIfNeccessary();
-      // TODO(zerny): This amounts to object equality.
-      return node.equals(o.node);
-    }
+    // Code of different methods is never shared, so jar code is only equal to itself.
     return false;
   }
 
   @Override
   public IRCode buildIR(DexEncodedMethod encodedMethod, InternalOptions options) {
-    triggerDelayedParsingIfNeccessary();
+    MethodNode node = parseMethod();
     return options.debug
-        ? internalBuildWithLocals(encodedMethod, null, options)
-        : internalBuild(encodedMethod, null, options);
+        ? internalBuildWithLocals(node, encodedMethod, null, options)
+        : internalBuild(node, encodedMethod, null, options);
   }
 
   public IRCode buildIR(
       DexEncodedMethod encodedMethod, ValueNumberGenerator generator, InternalOptions options) {
     assert generator != null;
-    triggerDelayedParsingIfNeccessary();
+    MethodNode node = parseMethod();
     return options.debug
-        ? internalBuildWithLocals(encodedMethod, generator, options)
-        : internalBuild(encodedMethod, generator, options);
+        ? internalBuildWithLocals(node, encodedMethod, generator, options)
+        : internalBuild(node, encodedMethod, generator, options);
   }
 
-  private IRCode internalBuildWithLocals(
+  private IRCode internalBuildWithLocals(MethodNode node,
       DexEncodedMethod encodedMethod, ValueNumberGenerator generator, InternalOptions options) {
     try {
-      return internalBuild(encodedMethod, generator, options);
+      return internalBuild(node, encodedMethod, generator, options);
     } catch (InvalidDebugInfoException e) {
       options.warningInvalidDebugInfo(encodedMethod, e);
       node.localVariables.clear();
-      return internalBuild(encodedMethod, generator, options);
+      return internalBuild(node, encodedMethod, generator, options);
     }
   }
 
-  private IRCode internalBuild(
+  private IRCode internalBuild(MethodNode node,
       DexEncodedMethod encodedMethod, ValueNumberGenerator generator, InternalOptions options) {
     if (!options.debug) {
       node.localVariables.clear();
@@ -122,15 +114,17 @@ public class JarCode extends Code {
 
   @Override
   public void registerReachableDefinitions(UseRegistry registry) {
-    triggerDelayedParsingIfNeccessary();
-    node.instructions.accept(new JarRegisterEffectsVisitor(clazz, registry, application));
+    // Register the uses straight from the bytecode, without building the tree of the method.
+    // Subroutines are not inlined, as that only duplicates their uses.
+    MethodParser parser = new MethodParser(
+        methodIndex, new JarRegisterEffectsVisitor(clazz, registry, application));
+    context.classReader.accept(parser, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
   }
 
   @Override
   public String toString() {
-    triggerDelayedParsingIfNeccessary();
     TraceMethodVisitor visitor = new TraceMethodVisitor(new Textifier());
-    node.accept(visitor);
+    parseMethod().accept(visitor);
     StringWriter writer = new StringWriter();
     visitor.p.print(new PrintWriter(writer));
     return writer.toString();
@@ -141,62 +135,68 @@ public class JarCode extends Code {
     return toString();
   }
 
-  private void triggerDelayedParsingIfNeccessary() {
-    if (context != null) {
-      // The SecondVistor is in charge of setting the context to null.
-      DexProgramClass owner = context.owner;
-      new ClassReader(context.classCache).accept(new SecondVisitor(context, application),
-          ClassReader.SKIP_FRAMES);
-      assert verifyNoReparseContext(owner);
-    }
+  /**
+   * Parses the instructions of this method from the class file.
+   * <p>
+   * The resulting tree is not retained. Keeping the trees of all methods alive until their code is
+   * converted takes a lot more memory than the class file, so the method is parsed again each time
+   * its instructions are needed. The class reader is shared by all methods of the class, so the
+   * constant pool is not scanned again, and the other methods are skipped after their header.
+   */
+  private MethodNode parseMethod() {
+    MethodNodeParser parser = new MethodNodeParser(methodIndex);
+    context.classReader.accept(parser, ClassReader.SKIP_FRAMES);
+    assert parser.node != null;
+    return parser.node;
   }
 
   /**
-   * Fills the MethodNodes of all the methods in the class and removes the ReparseContext.
+   * Visits the method at a given position in the class with a method visitor and skips the code
+   * of all other methods.
    */
-  private static class SecondVisitor extends ClassVisitor {
+  private static class MethodParser extends ClassVisitor {
 
-    private final ReparseContext context;
-    private final JarApplicationReader application;
+    private final int methodIndex;
+    private final MethodVisitor visitor;
+    private int currentIndex = 0;
 
-    public SecondVisitor(ReparseContext context, JarApplicationReader application) {
+    public MethodParser(int methodIndex, MethodVisitor visitor) {
       super(Opcodes.ASM5);
-      this.context = context;
-      this.application = application;
+      this.methodIndex = methodIndex;
+      this.visitor = visitor;
     }
 
     @Override
     public MethodVisitor visitMethod(int access, String name, String desc, String signature,
         String[] exceptions) {
-      MethodNode node = new JSRInlinerAdapter(null, access, name, desc, signature, exceptions);
-      JarCode code = context.lookupMap.get(application.getMethod(context.owner.type, name, desc));
-      if (code != null) {
-        code.context = null;
-        code.node = node;
-        return node;
+      if (currentIndex++ != methodIndex) {
+        return null;
       }
-      return null;
+      return createVisitor(access, name, desc, signature, exceptions);
+    }
+
+    protected MethodVisitor createVisitor(int access, String name, String desc, String signature,
+        String[] exceptions) {
+      return visitor;
     }
   }
 
-  private static boolean verifyNoReparseContext(DexProgramClass owner) {
-    for (DexEncodedMethod method : owner.virtualMethods()) {
-      Code code = method.getCode();
-      if (code != null && code.isJarCode()) {
-        if (code.asJarCode().context != null) {
-          return false;
-        }
-      }
+  /**
+   * Creates the MethodNode for the method at a given position in the class.
+   */
+  private static class MethodNodeParser extends MethodParser {
+
+    private MethodNode node;
+
+    public MethodNodeParser(int methodIndex) {
+      super(methodIndex, null);
     }
 
-    for (DexEncodedMethod method : owner.directMethods()) {
-      Code code = method.getCode();
-      if (code != null && code.isJarCode()) {
-        if (code.asJarCode().context != null) {
-          return false;
-        }
-      }
+    @Override
+    protected MethodVisitor createVisitor(int access, String name, String desc, String signature,
+        String[] exceptions) {
+      node = new JSRInlinerAdapter(null, access, name, desc, signature, exceptions);
+      return node;
     }
-    return true;
   }
 }
@@ -77,6 +77,22 @@ public class ObjectToOffsetMapping {
     setIndexes(methodHandles);
   }
 
+  /**
+   * For mappings that do not belong to an output file and number the items themselves, by
+   * overriding all getOffsetFor methods.
+   */
+  protected ObjectToOffsetMapping() {
+    this.virtualFileId = -1;
+    this.classes = null;
+    this.protos = null;
+    this.types = null;
+    this.methods = null;
+    this.fields = null;
+    this.strings = null;
+    this.callSites = null;
+    this.methodHandles = null;
+  }
+
   private static DexProgramClass[] sortClasses(
       DexApplication application, DexProgramClass[] classes) {
     Arrays.sort(classes, (o1, o2) -> o1.type.descriptor.slowCompareTo(o2.type.descriptor));
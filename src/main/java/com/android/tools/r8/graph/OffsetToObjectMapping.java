@@ -3,6 +3,8 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.graph;
 
+import java.util.Arrays;
+
 public class OffsetToObjectMapping {
 
   private DexProgramClass[] classes;
@@ -13,6 +15,8 @@ public class OffsetToObjectMapping {
   private DexString[] strings;
   private DexCallSite[] callSites;
   private DexMethodHandle[] methodHandles;
+  // Whether the strings are in the order of DexString.slowCompareTo, as the dex format requires.
+  private boolean stringsSorted = false;
 
   public void initializeClasses(int length) {
     assert classes == null;
@@ -119,6 +123,14 @@ public class OffsetToObjectMapping {
     return types[index];
   }
 
+  public void setStringsSorted(boolean stringsSorted) {
+    this.stringsSorted = stringsSorted;
+  }
+
+  public boolean areStringsSorted() {
+    return stringsSorted;
+  }
+
   public DexString getString(int index) {
     assert strings[index] != null;
     return strings[index];
@@ -173,4 +185,17 @@ public class OffsetToObjectMapping {
     assert methodHandles[index] == null;
     methodHandles[index] = methodHandle;
   }
+
+  /** Whether both tables hold the same items at the same indices. */
+  public boolean hasSameItems(OffsetToObjectMapping other) {
+    return stringsSorted == other.stringsSorted
+        && Arrays.equals(classes, other.classes)
+        && Arrays.equals(methods, other.methods)
+        && Arrays.equals(protos, other.protos)
+        && Arrays.equals(fields, other.fields)
+        && Arrays.equals(types, other.types)
+        && Arrays.equals(strings, other.strings)
+        && Arrays.equals(callSites, other.callSites)
+        && Arrays.equals(methodHandles, other.methodHandles);
+  }
 }
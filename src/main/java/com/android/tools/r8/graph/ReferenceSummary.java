@@ -0,0 +1,170 @@
+// Copyright (c) 2017, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import com.android.tools.r8.code.Instruction;
+import com.android.tools.r8.errors.Unreachable;
+import java.util.Arrays;
+
+/**
+ * The uses registered by a list of instructions, in the order in which the instructions register
+ * them. Replaying the summary on a {@link UseRegistry} has the same effect as calling
+ * {@link Instruction#registerUse} on every instruction, but only visits the actual references.
+ */
+final class ReferenceSummary {
+
+  private static final byte INVOKE_VIRTUAL = 0;
+  private static final byte INVOKE_DIRECT = 1;
+  private static final byte INVOKE_STATIC = 2;
+  private static final byte INVOKE_INTERFACE = 3;
+  private static final byte INVOKE_SUPER = 4;
+  private static final byte INSTANCE_FIELD_WRITE = 5;
+  private static final byte INSTANCE_FIELD_READ = 6;
+  private static final byte NEW_INSTANCE = 7;
+  private static final byte STATIC_FIELD_READ = 8;
+  private static final byte STATIC_FIELD_WRITE = 9;
+  private static final byte TYPE_REFERENCE = 10;
+
+  private static final ReferenceSummary EMPTY = new ReferenceSummary(new byte[0], new DexItem[0]);
+
+  private final byte[] kinds;
+  private final DexItem[] items;
+
+  private ReferenceSummary(byte[] kinds, DexItem[] items) {
+    assert kinds.length == items.length;
+    this.kinds = kinds;
+    this.items = items;
+  }
+
+  static ReferenceSummary create(Instruction[] instructions) {
+    Recorder recorder = new Recorder();
+    for (Instruction instruction : instructions) {
+      instruction.registerUse(recorder);
+    }
+    return recorder.build();
+  }
+
+  void registerUses(UseRegistry registry) {
+    for (int i = 0; i < kinds.length; i++) {
+      DexItem item = items[i];
+      switch (kinds[i]) {
+        case INVOKE_VIRTUAL:
+          registry.registerInvokeVirtual((DexMethod) item);
+          break;
+        case INVOKE_DIRECT:
+          registry.registerInvokeDirect((DexMethod) item);
+          break;
+        case INVOKE_STATIC:
+          registry.registerInvokeStatic((DexMethod) item);
+          break;
+        case INVOKE_INTERFACE:
+          registry.registerInvokeInterface((DexMethod) item);
+          break;
+        case INVOKE_SUPER:
+          registry.registerInvokeSuper((DexMethod) item);
+          break;
+        case INSTANCE_FIELD_WRITE:
+          registry.registerInstanceFieldWrite((DexField) item);
+          break;
+        case INSTANCE_FIELD_READ:
+          registry.registerInstanceFieldRead((DexField) item);
+          break;
+        case NEW_INSTANCE:
+          registry.registerNewInstance((DexType) item);
+          break;
+        case STATIC_FIELD_READ:
+          registry.registerStaticFieldRead((DexField) item);
+          break;
+        case STATIC_FIELD_WRITE:
+          registry.registerStaticFieldWrite((DexField) item);
+          break;
+        case TYPE_REFERENCE:
+          registry.registerTypeReference((DexType) item);
+          break;
+        default:
+          throw new Unreachable("Unexpected reference kind " + kinds[i]);
+      }
+    }
+  }
+
+  private static class Recorder extends UseRegistry {
+
+    private byte[] kinds = new byte[16];
+    private DexItem[] items = new DexItem[16];
+    private int size = 0;
+
+    private boolean record(byte kind, DexItem item) {
+      if (size == kinds.length) {
+        kinds = Arrays.copyOf(kinds, size * 2);
+        items = Arrays.copyOf(items, size * 2);
+      }
+      kinds[size] = kind;
+      items[size] = item;
+      size++;
+      return true;
+    }
+
+    ReferenceSummary build() {
+      if (size == 0) {
+        return EMPTY;
+      }
+      return new ReferenceSummary(Arrays.copyOf(kinds, size), Arrays.copyOf(items, size));
+    }
+
+    @Override
+    public boolean registerInvokeVirtual(DexMethod method) {
+      return record(INVOKE_VIRTUAL, method);
+    }
+
+    @Override
+    public boolean registerInvokeDirect(DexMethod method) {
+      return record(INVOKE_DIRECT, method);
+    }
+
+    @Override
+    public boolean registerInvokeStatic(DexMethod method) {
+      return record(INVOKE_STATIC, method);
+    }
+
+    @Override
+    public boolean registerInvokeInterface(DexMethod method) {
+      return record(INVOKE_INTERFACE, method);
+    }
+
+    @Override
+    public boolean registerInvokeSuper(DexMethod method) {
+      return record(INVOKE_SUPER, method);
+    }
+
+    @Override
+    public boolean registerInstanceFieldWrite(DexField field) {
+      return record(INSTANCE_FIELD_WRITE, field);
+    }
+
+    @Override
+    public boolean registerInstanceFieldRead(DexField field) {
+      return record(INSTANCE_FIELD_READ, field);
+    }
+
+    @Override
+    public boolean registerNewInstance(DexType type) {
+      return record(NEW_INSTANCE, type);
+    }
+
+    @Override
+    public boolean registerStaticFieldRead(DexField field) {
+      return record(STATIC_FIELD_READ, field);
+    }
+
+    @Override
+    public boolean registerStaticFieldWrite(DexField field) {
+      return record(STATIC_FIELD_WRITE, field);
+    }
+
+    @Override
+    public boolean registerTypeReference(DexType type) {
+      return record(TYPE_REFERENCE, type);
+    }
+  }
+}
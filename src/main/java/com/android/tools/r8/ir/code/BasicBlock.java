@@ -14,10 +14,13 @@ import com.android.tools.r8.utils.ListUtils;
 import com.android.tools.r8.utils.StringUtils;
 import com.android.tools.r8.utils.StringUtils.BraceType;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -28,6 +31,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Basic block abstraction.
@@ -551,6 +555,58 @@ public class BasicBlock {
   }
 
   public List<BasicBlock> unlink(BasicBlock successor, DominatorTree dominator) {
+    return unlink(successor, block -> allPredecessorsDominated(block, dominator));
+  }
+
+  /**
+   * Unlink this block from its successor and remove the blocks that are no longer reachable.
+   *
+   * <p>Unlike {@link #unlink(BasicBlock, DominatorTree)} this does not need a dominator tree,
+   * and only visits the blocks reachable from the successor.
+   */
+  public List<BasicBlock> unlink(BasicBlock successor) {
+    Set<BasicBlock> unreachable = blocksUnreachableWithoutEdge(this, successor);
+    return unlink(successor, unreachable::remove);
+  }
+
+  // The blocks that become unreachable if the edge from pred to succ is removed. Only the blocks
+  // reachable from succ are affected, and of those the ones that can still be reached from a
+  // block outside of that region, other than through the edge, stay reachable.
+  private static Set<BasicBlock> blocksUnreachableWithoutEdge(BasicBlock pred, BasicBlock succ) {
+    Set<BasicBlock> region = Sets.newIdentityHashSet();
+    Deque<BasicBlock> worklist = new ArrayDeque<>();
+    region.add(succ);
+    worklist.add(succ);
+    while (!worklist.isEmpty()) {
+      for (BasicBlock block : worklist.removeFirst().successors) {
+        if (region.add(block)) {
+          worklist.add(block);
+        }
+      }
+    }
+    Set<BasicBlock> reachable = Sets.newIdentityHashSet();
+    for (BasicBlock block : region) {
+      for (BasicBlock blockPred : block.predecessors) {
+        if (!region.contains(blockPred) && (blockPred != pred || block != succ)) {
+          reachable.add(block);
+          worklist.add(block);
+          break;
+        }
+      }
+    }
+    while (!worklist.isEmpty()) {
+      BasicBlock block = worklist.removeFirst();
+      for (BasicBlock blockSucc : block.successors) {
+        if ((block != pred || blockSucc != succ) && reachable.add(blockSucc)) {
+          worklist.add(blockSucc);
+        }
+      }
+    }
+    region.removeAll(reachable);
+    return region;
+  }
+
+  private List<BasicBlock> unlink(BasicBlock successor, Predicate<BasicBlock> isUnreachable) {
     assert successors.contains(successor);
     assert successor.predecessors.contains(this);
     List<BasicBlock> removedBlocks = new ArrayList<>();
@@ -570,7 +626,7 @@ public class BasicBlock {
       assert size == succ.predecessors.size() + 1;
       // A predecessor has been removed. If all remaining predecessors are dominated by this block
       // schedule it for removal, as it is no longer reachable.
-      if (allPredecessorsDominated(succ, dominator)) {
+      if (isUnreachable.test(succ)) {
         removedBlocks.add(succ);
         for (BasicBlock block : succ.successors) {
           worklist.add(new Pair(succ, block));
@@ -373,8 +373,7 @@ public class BasicBlockInstructionIterator implements InstructionIterator, Instr
       assert inlineeCanThrow;
       // TODO(sgjesse): Remove this restriction.
       assert !invokeBlock.hasCatchHandlers();
-      blocksToRemove.addAll(
-          invokePredecessor.unlink(invokeBlock, new DominatorTree(code, blocksToRemove)));
+      blocksToRemove.addAll(invokePredecessor.unlink(invokeBlock));
     } else {
       // Locate inlinee return.
       InstructionListIterator inlineeIterator = inlinee.getNormalExitBlock().listIterator();
@@ -5,7 +5,6 @@
 package com.android.tools.r8.ir.code;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -13,16 +12,56 @@ public class DominatorTree {
 
   private BasicBlock[] sorted;
   private BasicBlock[] doms;
+  // The successors of each block when the tree was built.
+  private BasicBlock[][] successors;
+  // The blocks in preorder of the dominator tree. The blocks dominated by a block are the ones
+  // in the interval from its preorder number (inclusive) to its subtree end (exclusive).
+  private BasicBlock[] preorder;
+  private int[] preorderNumbers;
+  private int[] subtreeEnds;
 
   public DominatorTree(IRCode code) {
-    this(code, Collections.emptyList());
-  }
-
-  // TODO(sgjesse) Get rid of this constructor and blocksToIgnore.
-  DominatorTree(IRCode code, List<BasicBlock> blocksToIgnore) {
-    this.sorted = code.topologicallySortedBlocks(blocksToIgnore);
+    this.sorted = code.topologicallySortedBlocks();
     numberBlocks();
     build();
+    numberDominatorTree();
+    recordSuccessors();
+  }
+
+  private void recordSuccessors() {
+    successors = new BasicBlock[sorted.length][];
+    for (int i = 0; i < sorted.length; i++) {
+      List<BasicBlock> blockSuccessors = sorted[i].getSuccessors();
+      successors[i] = blockSuccessors.toArray(new BasicBlock[blockSuccessors.size()]);
+    }
+  }
+
+  /**
+   * Check if this tree is still the tree that would be built for the code, i.e., no blocks or
+   * edges have been added, removed or reordered, and the blocks have not been renumbered.
+   */
+  boolean isValidFor(IRCode code) {
+    if (code.blocks.size() != sorted.length
+        || code.blocks.getFirst() != sorted[0]) {
+      return false;
+    }
+    for (BasicBlock block : code.blocks) {
+      int number = block.getNumber();
+      if (number < 0 || number >= sorted.length || sorted[number] != block) {
+        return false;
+      }
+      List<BasicBlock> blockSuccessors = block.getSuccessors();
+      BasicBlock[] recordedSuccessors = successors[number];
+      if (blockSuccessors.size() != recordedSuccessors.length) {
+        return false;
+      }
+      for (int i = 0; i < recordedSuccessors.length; i++) {
+        if (blockSuccessors.get(i) != recordedSuccessors[i]) {
+          return false;
+        }
+      }
+    }
+    return true;
   }
 
   /**
@@ -54,19 +93,15 @@ public class DominatorTree {
    * @return wether {@code subject} is strictly dominated by {@code dominator}
    */
   public boolean strictlyDominatedBy(BasicBlock subject, BasicBlock dominator) {
-    if (subject.getNumber() == 0) {
+    int subjectNumber = subject.getNumber();
+    int dominatorNumber = dominator.getNumber();
+    if (subjectNumber == 0 || subjectNumber == dominatorNumber
+        || dominatorNumber >= sorted.length) {
       return false;
     }
-    while (true) {
-      BasicBlock idom = immediateDominator(subject);
-      if (idom.getNumber() < dominator.getNumber()) {
-        return false;
-      }
-      if (idom == dominator) {
-        return true;
-      }
-      subject = idom;
-    }
+    int subjectPreorderNumber = preorderNumbers[subjectNumber];
+    return preorderNumbers[dominatorNumber] < subjectPreorderNumber
+        && subjectPreorderNumber < subtreeEnds[dominatorNumber];
   }
 
   /**
@@ -147,6 +182,14 @@ public class DominatorTree {
     return sorted;
   }
 
+  /**
+   * Returns the blocks in preorder of the dominator tree, i.e., each block comes before all the
+   * blocks it dominates, and the blocks dominated by a block directly follow it.
+   */
+  public BasicBlock[] getBlocksInPreorder() {
+    return preorder;
+  }
+
   private void numberBlocks() {
     for (int i = 0; i < sorted.length; i++) {
       sorted[i].setNumber(i);
@@ -200,6 +243,52 @@ public class DominatorTree {
     }
   }
 
+  // Number the blocks in a depth first walk of the dominator tree, such that dominance queries
+  // are interval checks instead of walks up the tree.
+  private void numberDominatorTree() {
+    int size = sorted.length;
+    // Children of block i are children[childrenStarts[i]] up to children[childrenStarts[i + 1]].
+    int[] childrenStarts = new int[size + 1];
+    for (int i = 1; i < size; i++) {
+      childrenStarts[doms[i].getNumber() + 1]++;
+    }
+    for (int i = 0; i < size; i++) {
+      childrenStarts[i + 1] += childrenStarts[i];
+    }
+    int[] children = new int[Math.max(size - 1, 0)];
+    int[] nextChild = new int[size];
+    System.arraycopy(childrenStarts, 0, nextChild, 0, size);
+    for (int i = 1; i < size; i++) {
+      children[nextChild[doms[i].getNumber()]++] = i;
+    }
+    preorder = new BasicBlock[size];
+    preorderNumbers = new int[size];
+    subtreeEnds = new int[size];
+    if (size == 0) {
+      return;
+    }
+    System.arraycopy(childrenStarts, 0, nextChild, 0, size);
+    int[] stack = new int[size];
+    int top = 0;
+    int counter = 0;
+    stack[0] = 0;
+    preorder[counter] = sorted[0];
+    preorderNumbers[0] = counter++;
+    while (top >= 0) {
+      int block = stack[top];
+      if (nextChild[block] < childrenStarts[block + 1]) {
+        int child = children[nextChild[block]++];
+        stack[++top] = child;
+        preorder[counter] = sorted[child];
+        preorderNumbers[child] = counter++;
+      } else {
+        subtreeEnds[block] = counter;
+        top--;
+      }
+    }
+    assert counter == size;
+  }
+
   private BasicBlock intersect(BasicBlock b1, BasicBlock b2) {
     BasicBlock finger1 = b1;
     BasicBlock finger2 = b2;
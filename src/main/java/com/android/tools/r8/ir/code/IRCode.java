@@ -10,7 +10,6 @@ import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.ir.regalloc.LinearScanRegisterAllocator;
 import com.android.tools.r8.utils.CfgPrinter;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -31,6 +30,11 @@ public class IRCode {
   private boolean numbered = false;
   private int nextInstructionNumber = 0;
 
+  // The tree returned by the last call to getDominatorTree().
+  private DominatorTree dominatorTree;
+  private int dominatorTreesBuilt = 0;
+  private int dominatorTreesReused = 0;
+
   public IRCode(
       DexEncodedMethod method,
       LinkedList<BasicBlock> blocks,
@@ -64,6 +68,30 @@ public class IRCode {
     return builder.toString();
   }
 
+  /**
+   * Returns the dominator tree of the code.
+   *
+   * <p>The tree is reused as long as the control flow graph has not changed since it was built.
+   * Otherwise a new tree is built, which renumbers the blocks and clears their marks.
+   */
+  public DominatorTree getDominatorTree() {
+    if (dominatorTree != null && dominatorTree.isValidFor(this)) {
+      dominatorTreesReused++;
+    } else {
+      dominatorTree = new DominatorTree(this);
+      dominatorTreesBuilt++;
+    }
+    return dominatorTree;
+  }
+
+  public int getNumberOfDominatorTreesBuilt() {
+    return dominatorTreesBuilt;
+  }
+
+  public int getNumberOfDominatorTreesReused() {
+    return dominatorTreesReused;
+  }
+
   public void clearMarks() {
     for (BasicBlock block : blocks) {
       block.clearMark();
@@ -98,12 +126,8 @@ public class IRCode {
    * no sorting.
    */
   public BasicBlock[] topologicallySortedBlocks() {
-    return topologicallySortedBlocks(Collections.emptyList());
-  }
-
-  public BasicBlock[] topologicallySortedBlocks(List<BasicBlock> blocksToIgnore) {
     clearMarks();
-    int reachableBlocks = blocks.size() - blocksToIgnore.size();
+    int reachableBlocks = blocks.size();
     BasicBlock[] sorted = new BasicBlock[reachableBlocks];
     BasicBlock entryBlock = blocks.getFirst();
     int index = depthFirstSorting(entryBlock, sorted, reachableBlocks - 1);
@@ -222,7 +222,8 @@ public class DexBuilder {
     // Construct try-catch info.
     TryInfo tryInfo = computeTryInfo();
 
-    // Return the dex code.
+    // Return the dex code. The instructions are only needed again if the method is inlined or
+    // rebuilt, so they are replaced by their encoded form, like the code read from a dex file.
     DexCode code = new DexCode(
         registerAllocator.registersUsed(),
         inRegisterCount,
@@ -231,6 +232,7 @@ public class DexBuilder {
         tryInfo.handlers,
         debugEventBuilder.build(),
         highestSortingReferencedString);
+    code.encodeInstructions();
 
     return code;
   }
@@ -21,6 +21,7 @@ import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.graph.GraphLense;
 import com.android.tools.r8.ir.code.IRCode;
 import com.android.tools.r8.ir.desugar.InterfaceMethodRewriter;
+import com.android.tools.r8.ir.desugar.LambdaClassCache;
 import com.android.tools.r8.ir.desugar.LambdaRewriter;
 import com.android.tools.r8.ir.optimize.CodeRewriter;
 import com.android.tools.r8.ir.optimize.DeadCodeRemover;
@@ -41,11 +42,14 @@ import com.android.tools.r8.utils.Timing;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 
 public class IRConverter {
@@ -69,8 +73,18 @@ public class IRConverter {
   private CallGraph callGraph;
 
   private OptimizationFeedback ignoreOptimizationFeedback = new OptimizationFeedbackIgnore();
+  // Highest sorting strings referenced by the code produced on each thread. Each thread updates
+  // its own slot, and the slots are reduced into highestSortingString when a new application is
+  // built. The reduction also starts a new thread local, so pooled threads do not keep old slots.
+  private final Queue<DexString[]> threadHighestSortingStrings = new ConcurrentLinkedQueue<>();
+  private ThreadLocal<DexString[]> threadHighestSortingString =
+      ThreadLocal.withInitial(this::createThreadHighestSortingString);
   private DexString highestSortingString;
 
+  // Number of dominator trees built and reused by all methods, for the timing report.
+  private final AtomicInteger dominatorTreesBuilt = new AtomicInteger();
+  private final AtomicInteger dominatorTreesReused = new AtomicInteger();
+
   private IRConverter(
       Timing timing,
       DexApplication application,
@@ -90,7 +104,12 @@ public class IRConverter {
     this.options = options;
     this.printer = printer;
     this.codeRewriter = new CodeRewriter(appInfo, libraryMethodsReturningReceiver());
-    this.lambdaRewriter = enableDesugaring ? new LambdaRewriter(this) : null;
+    // Lambda classes read from the cache are neither optimized with the rest of the program nor
+    // given the forwarding methods added by interface method desugaring.
+    LambdaClassCache lambdaClassCache =
+        (enableWholeProgramOptimizations || enableInterfaceMethodDesugaring())
+            ? null : options.lambdaClassCache;
+    this.lambdaRewriter = enableDesugaring ? new LambdaRewriter(this, lambdaClassCache) : null;
     this.interfaceMethodRewriter =
         (enableDesugaring && enableInterfaceMethodDesugaring())
             ? new InterfaceMethodRewriter(this) : null;
@@ -196,17 +215,22 @@ public class IRConverter {
     }
   }
 
-  private void synthesizeLambdaClasses(Builder builder) {
+  private void synthesizeLambdaClasses(Builder builder, ExecutorService executorService)
+      throws ExecutionException {
     if (lambdaRewriter != null) {
       lambdaRewriter.adjustAccessibility();
-      lambdaRewriter.synthesizeLambdaClasses(builder);
+      lambdaRewriter.synthesizeLambdaClasses(builder, executorService);
     }
   }
 
   private void desugarInterfaceMethods(
-      Builder builder, InterfaceMethodRewriter.Flavor includeAllResources) {
+      Builder builder,
+      InterfaceMethodRewriter.Flavor includeAllResources,
+      ExecutorService executorService)
+      throws ExecutionException {
     if (interfaceMethodRewriter != null) {
-      interfaceMethodRewriter.desugarInterfaceMethods(builder, includeAllResources);
+      interfaceMethodRewriter.desugarInterfaceMethods(
+          builder, includeAllResources, executorService);
     }
   }
 
@@ -214,13 +238,14 @@ public class IRConverter {
     removeLambdaDeserializationMethods();
 
     convertClassesToDex(application.classes(), executor);
+    reportAnalyses();
 
     // Build a new application with jumbo string info,
     Builder builder = new Builder(application);
-    builder.setHighestSortingString(highestSortingString);
+    builder.setHighestSortingString(getHighestSortingString());
 
-    synthesizeLambdaClasses(builder);
-    desugarInterfaceMethods(builder, ExcludeDexResources);
+    synthesizeLambdaClasses(builder, executor);
+    desugarInterfaceMethods(builder, ExcludeDexResources, executor);
 
     return builder.build();
   }
@@ -279,6 +304,7 @@ public class IRConverter {
           processMethod(method, directFeedback,
               outliner == null ? Outliner::noProcessing : outliner::identifyCandidates);
     }, executorService);
+    reportAnalyses();
     timing.end();
 
     // Get rid of <clinit> methods with no code.
@@ -286,38 +312,37 @@ public class IRConverter {
 
     // Build a new application with jumbo string info.
     Builder builder = new Builder(application);
-    builder.setHighestSortingString(highestSortingString);
+    builder.setHighestSortingString(getHighestSortingString());
 
     // Second inlining pass for dealing with double inline callers.
     if (inliner != null) {
       inliner.processDoubleInlineCallers(this, ignoreOptimizationFeedback);
     }
 
-    synthesizeLambdaClasses(builder);
-    desugarInterfaceMethods(builder, IncludeAllResources);
+    synthesizeLambdaClasses(builder, executorService);
+    desugarInterfaceMethods(builder, IncludeAllResources, executorService);
 
     if (outliner != null) {
       timing.begin("IR conversion phase 2");
-      // Compile all classes flagged for outlining and
+      // Apply outlining to all methods flagged for outlining and
       // add the outline support class IF needed.
-      DexProgramClass outlineClass = prepareOutlining();
-      if (outlineClass != null) {
-        // We need a new call graph to ensure deterministic order and also processing inside out
-        // to get maximal inlining. Use a identity lense, as the code has been rewritten.
-        callGraph = CallGraph
-            .build(application, appInfo.withSubtyping(), GraphLense.getIdentityLense(), options);
-        Set<DexEncodedMethod> outlineMethods = outliner.getMethodsSelectedForOutlining();
-        callGraph.forEachMethod(method -> {
-          if (!outlineMethods.contains(method)) {
-            return;
-          }
-          // This is the second time we compile this method first mark it not processed.
-          assert !method.getCode().isOutlineCode();
-          processMethod(method, ignoreOptimizationFeedback, outliner::applyOutliningCandidate);
-          assert method.isProcessed();
-        }, executorService);
-        builder.addSynthesizedClass(outlineClass, true);
-        clearDexMethodCompilationState(outlineClass);
+      if (outliner.selectMethodsForOutlining()) {
+        outliner.createOutlineMethods(computeOutlineClassType());
+        // The methods flagged for outlining have already been optimized, so the outlines are
+        // patched into their current code instead of compiling them again. Each method is
+        // rewritten independently of the others, so the order of processing does not matter.
+        List<Future<?>> futures = new ArrayList<>();
+        for (DexEncodedMethod method : outliner.getMethodsSelectedForOutlining()) {
+          futures.add(executorService.submit(() -> applyOutlining(method)));
+        }
+        ThreadUtils.awaitFutures(futures);
+        // Only the outlines that were applied to the final code are generated.
+        DexProgramClass outlineClass = outliner.buildOutlinerClass();
+        if (outlineClass != null) {
+          optimizeSynthesizedClass(outlineClass, executorService);
+          builder.addSynthesizedClass(outlineClass, true);
+          clearDexMethodCompilationState(outlineClass);
+        }
       }
       timing.end();
     }
@@ -325,6 +350,11 @@ public class IRConverter {
     return builder.build();
   }
 
+  private void reportAnalyses() {
+    timing.info("Dominator trees built: " + dominatorTreesBuilt.get()
+        + ", reused: " + dominatorTreesReused.get());
+  }
+
   private void removeEmptyClassInitializers() {
     application.classes().forEach(this::removeEmptyClassInitializer);
   }
@@ -380,13 +410,23 @@ public class IRConverter {
     return result;
   }
 
-  private DexProgramClass prepareOutlining() {
-    if (!outliner.selectMethodsForOutlining()) {
-      return null;
+  // Rewrite the already optimized code of a method to use the generated outlines.
+  private void applyOutlining(DexEncodedMethod method) {
+    assert method.getCode().isDexCode();
+    IRCode code = method.buildIR(options);
+    if (!outliner.applyOutliningCandidate(code, method)) {
+      // None of the outlines matched the final code, so keep it.
+      return;
+    }
+    assert code.isConsistentSSA();
+    codeRewriter.shortenLiveRanges(code);
+    RegisterAllocator registerAllocator = performRegisterAllocation(code, method);
+    method.setCode(code, registerAllocator, appInfo.dexItemFactory);
+    updateHighestSortingStrings(method);
+    if (Log.ENABLED) {
+      Log.debug(getClass(), "Resulting dex code for %s:\n%s",
+          method.toSourceString(), logCode(options, method));
     }
-    DexProgramClass outlineClass = outliner.buildOutlinerClass(computeOutlineClassType());
-    optimizeSynthesizedClass(outlineClass);
-    return outlineClass;
   }
 
   public void optimizeSynthesizedClass(DexProgramClass clazz) {
@@ -394,6 +434,16 @@ public class IRConverter {
     clazz.forEachMethod(this::optimizeSynthesizedMethod);
   }
 
+  private void optimizeSynthesizedClass(DexProgramClass clazz, ExecutorService executorService)
+      throws ExecutionException {
+    // Process the generated methods in parallel, but don't apply any outlining. The methods are
+    // independent of each other, so this does not affect the result.
+    List<Future<?>> futures = new ArrayList<>();
+    clazz.forEachMethod(
+        method -> futures.add(executorService.submit(() -> optimizeSynthesizedMethod(method))));
+    ThreadUtils.awaitFutures(futures);
+  }
+
   public void optimizeSynthesizedMethod(DexEncodedMethod method) {
     // Process the generated method, but don't apply any outlining.
     processMethod(method, ignoreOptimizationFeedback, Outliner::noProcessing);
@@ -529,17 +579,38 @@ public class IRConverter {
     } else {
       state = inliner.computeInliningConstraint(code, method);
     }
+    dominatorTreesBuilt.addAndGet(code.getNumberOfDominatorTreesBuilt());
+    dominatorTreesReused.addAndGet(code.getNumberOfDominatorTreesReused());
     feedback.markProcessed(method, state);
   }
 
-  private synchronized void updateHighestSortingStrings(DexEncodedMethod method) {
-    DexString highestSortingReferencedString = method.getCode().asDexCode().highestSortingString;
+  private DexString[] createThreadHighestSortingString() {
+    DexString[] slot = new DexString[1];
+    threadHighestSortingStrings.add(slot);
+    return slot;
+  }
+
+  private void updateHighestSortingStrings(DexEncodedMethod method) {
+    DexString highestSortingReferencedString = method.getCode().asDexCode().getHighestSortingString();
     if (highestSortingReferencedString != null) {
-      if (highestSortingString == null
-          || highestSortingReferencedString.slowCompareTo(highestSortingString) > 0) {
-        highestSortingString = highestSortingReferencedString;
+      DexString[] slot = threadHighestSortingString.get();
+      if (slot[0] == null || highestSortingReferencedString.slowCompareTo(slot[0]) > 0) {
+        slot[0] = highestSortingReferencedString;
+      }
+    }
+  }
+
+  // Must only be called when no methods are being converted.
+  private DexString getHighestSortingString() {
+    threadHighestSortingString = ThreadLocal.withInitial(this::createThreadHighestSortingString);
+    DexString[] slot;
+    while ((slot = threadHighestSortingStrings.poll()) != null) {
+      if (slot[0] != null
+          && (highestSortingString == null || slot[0].slowCompareTo(highestSortingString) > 0)) {
+        highestSortingString = slot[0];
       }
     }
+    return highestSortingString;
   }
 
   private RegisterAllocator performRegisterAllocation(IRCode code, DexEncodedMethod method) {
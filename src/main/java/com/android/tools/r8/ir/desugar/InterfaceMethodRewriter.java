@@ -24,11 +24,17 @@ import com.android.tools.r8.ir.code.InstructionListIterator;
 import com.android.tools.r8.ir.code.InvokeStatic;
 import com.android.tools.r8.ir.code.InvokeSuper;
 import com.android.tools.r8.ir.conversion.IRConverter;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 //
 // Default and static interface method desugaring rewriter (note that lambda
@@ -193,7 +199,9 @@ public final class InterfaceMethodRewriter {
    * Move static and default interface methods to companion classes,
    * add missing methods to forward to moved default methods implementation.
    */
-  public void desugarInterfaceMethods(Builder builder, Flavor flavour) {
+  public void desugarInterfaceMethods(
+      Builder builder, Flavor flavour, ExecutorService executorService)
+      throws ExecutionException {
     // Process all classes first. Add missing forwarding methods to
     // replace desugared default interface methods.
     forwardingMethods.addAll(processClasses(builder, flavour));
@@ -210,9 +218,12 @@ public final class InterfaceMethodRewriter {
       builder.addSynthesizedClass(entry.getValue(), isInMainDexList(entry.getKey().type));
     }
 
+    // The forwarding methods are independent of each other and can be optimized in parallel.
+    List<Future<?>> futures = new ArrayList<>(forwardingMethods.size());
     for (DexEncodedMethod method : forwardingMethods) {
-      converter.optimizeSynthesizedMethod(method);
+      futures.add(executorService.submit(() -> converter.optimizeSynthesizedMethod(method)));
     }
+    ThreadUtils.awaitFutures(futures);
   }
 
   private static boolean shouldProcess(
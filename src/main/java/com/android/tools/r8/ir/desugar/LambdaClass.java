@@ -56,6 +56,8 @@ final class LambdaClass {
   final DexMethod classConstructor;
   final DexField instanceField;
   final Target target;
+  // Whether the class is the same for all classes it is accessed from, see createLambdaClassType.
+  final boolean hostIndependent;
   final AtomicBoolean addToMainDexList = new AtomicBoolean(false);
 
   LambdaClass(LambdaRewriter rewriter, DexType accessedFrom,
@@ -75,6 +77,8 @@ final class LambdaClass {
         lambdaClassType, constructorProto, rewriter.constructorName);
 
     this.target = createTarget(accessedFrom);
+    this.hostIndependent =
+        !descriptor.delegatesToLambdaImplMethod() && !descriptor.needsAccessor(accessedFrom);
 
     boolean stateless = isStateless();
     this.classConstructor = !stateless ? null
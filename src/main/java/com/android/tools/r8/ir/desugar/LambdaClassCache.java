@@ -0,0 +1,126 @@
+// Copyright (c) 2017, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir.desugar;
+
+import com.android.tools.r8.Resource;
+import com.android.tools.r8.dex.DexFile;
+import com.android.tools.r8.dex.DexFileReader;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.OutputMode;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Directory of lambda classes synthesized by earlier compilations, so incremental builds do not
+ * synthesize and optimize them again.
+ *
+ * Only lambda classes which do not depend on the class they are accessed from are cached. Their
+ * type is named after the SHA-1 hash of the call site, so the type determines the contents of the
+ * class for a given compiler version, min api level and compilation mode. Each class is stored as
+ * a dex file of its own, named after the hash of all of these. The entries are taken from the
+ * output of compilations with a dex file per class, and written with an atomic move, so
+ * concurrent compilations sharing the directory never read a partially written entry.
+ */
+public final class LambdaClassCache {
+
+  private final Path directory;
+  private final String compilerVersion;
+  private final InternalOptions options;
+
+  // Maps descriptors of the lambda classes synthesized in this compilation to their entry names.
+  private final Map<String, String> synthesizedEntries = new ConcurrentHashMap<>();
+  private final AtomicInteger reusedClasses = new AtomicInteger();
+
+  public LambdaClassCache(Path directory, String compilerVersion, InternalOptions options) {
+    this.directory = directory;
+    this.compilerVersion = compilerVersion;
+    this.options = options;
+  }
+
+  /** Number of lambda classes read from the cache instead of being synthesized. */
+  public int getReusedClassCount() {
+    return reusedClasses.get();
+  }
+
+  /**
+   * Reads the class of the given type from the cache, or returns null if it has not been cached.
+   * A class which is not found is recorded, so it is cached once the output has been written.
+   */
+  DexProgramClass lookup(DexType type, DexItemFactory factory) {
+    String descriptor = type.toDescriptorString();
+    String entry = entryName(descriptor);
+    Path file = directory.resolve(entry);
+    if (Files.exists(file)) {
+      try (InputStream input = Files.newInputStream(file)) {
+        List<DexProgramClass> classes =
+            DexFileReader.readProgramClasses(new DexFile(input), factory);
+        if (classes.size() == 1 && classes.get(0).type == type) {
+          reusedClasses.incrementAndGet();
+          return classes.get(0);
+        }
+      } catch (IOException | RuntimeException e) {
+        // A damaged entry is synthesized again and replaced.
+      }
+    }
+    synthesizedEntries.put(descriptor, entry);
+    return null;
+  }
+
+  /**
+   * Stores the lambda classes synthesized in this compilation from its output. Only output with a
+   * dex file per class has dex files holding only a lambda class, other output is not cached.
+   */
+  public void store(AndroidApp output) throws IOException {
+    if (options.outputMode != OutputMode.FilePerClass || synthesizedEntries.isEmpty()) {
+      return;
+    }
+    Files.createDirectories(directory);
+    for (Resource resource : output.getDexProgramResources()) {
+      Set<String> descriptors = resource.getClassDescriptors();
+      if (descriptors == null || descriptors.size() != 1) {
+        continue;
+      }
+      String entry = synthesizedEntries.get(descriptors.iterator().next());
+      if (entry == null) {
+        continue;
+      }
+      Path temporary = Files.createTempFile(directory, entry, ".tmp");
+      try {
+        try (InputStream input = resource.getStream();
+            OutputStream out = Files.newOutputStream(temporary)) {
+          ByteStreams.copy(input, out);
+        }
+        Files.move(temporary, directory.resolve(entry),
+            StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    }
+  }
+
+  private String entryName(String descriptor) {
+    String key = compilerVersion
+        + ':' + options.minApiLevel
+        + ':' + (options.debug ? "debug" : "release")
+        + ':' + descriptor;
+    return Hashing.sha1().hashString(key, Charsets.UTF_8).toString() + ".dex";
+  }
+}
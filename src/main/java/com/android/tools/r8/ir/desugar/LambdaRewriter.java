@@ -27,11 +27,15 @@ import com.android.tools.r8.ir.code.NewInstance;
 import com.android.tools.r8.ir.code.StaticGet;
 import com.android.tools.r8.ir.code.Value;
 import com.android.tools.r8.ir.conversion.IRConverter;
+import com.android.tools.r8.utils.ThreadUtils;
 import java.util.ArrayList;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Lambda desugaring rewriter.
@@ -60,6 +64,8 @@ public class LambdaRewriter {
   final IRConverter converter;
   final AppInfo appInfo;
   final DexItemFactory factory;
+  // Lambda classes synthesized by earlier compilations, or null if they are not reused.
+  private final LambdaClassCache lambdaClassCache;
 
   final DexMethod metafactoryMethod;
   final DexMethod objectInitMethod;
@@ -77,22 +83,20 @@ public class LambdaRewriter {
   // Maps call sites seen so far to inferred lambda descriptor. It is intended
   // to help avoid re-matching call sites we already seen. Note that same call
   // site may match one or several lambda classes.
-  //
-  // NOTE: synchronize concurrent access on `knownCallSites`.
-  private final Map<DexCallSite, LambdaDescriptor> knownCallSites = new IdentityHashMap<>();
+  private final Map<DexCallSite, LambdaDescriptor> knownCallSites = new ConcurrentHashMap<>();
   // Maps lambda class type into lambda class representation. Since lambda class
   // type uniquely defines lambda class, effectively canonicalizes lambda classes.
-  // NOTE: synchronize concurrent access on `knownLambdaClasses`.
-  private final Map<DexType, LambdaClass> knownLambdaClasses = new IdentityHashMap<>();
+  private final Map<DexType, LambdaClass> knownLambdaClasses = new ConcurrentHashMap<>();
 
   // Checks if the type starts with lambda-class prefix.
   public static boolean hasLambdaClassPrefix(DexType clazz) {
     return clazz.getName().startsWith(LAMBDA_CLASS_NAME_PREFIX);
   }
 
-  public LambdaRewriter(IRConverter converter) {
+  public LambdaRewriter(IRConverter converter, LambdaClassCache lambdaClassCache) {
     assert converter != null;
     this.converter = converter;
+    this.lambdaClassCache = lambdaClassCache;
     this.factory = converter.application.dexItemFactory;
     this.appInfo = converter.appInfo;
 
@@ -201,11 +205,30 @@ public class LambdaRewriter {
   }
 
   /** Generates lambda classes and adds them to the builder. */
-  public void synthesizeLambdaClasses(Builder builder) {
-    for (LambdaClass lambdaClass : knownLambdaClasses.values()) {
-      DexProgramClass synthesizedClass = lambdaClass.synthesizeLambdaClass();
-      converter.optimizeSynthesizedClass(synthesizedClass);
-      builder.addSynthesizedClass(synthesizedClass, lambdaClass.addToMainDexList.get());
+  public void synthesizeLambdaClasses(Builder builder, ExecutorService executorService)
+      throws ExecutionException {
+    // The lambda classes are independent of each other, so they are synthesized and optimized
+    // in parallel. They are added to the builder in the same order as when done sequentially.
+    // Classes found in the lambda class cache are read from it instead.
+    List<LambdaClass> lambdaClasses = new ArrayList<>(knownLambdaClasses.values());
+    List<Future<DexProgramClass>> futures = new ArrayList<>(lambdaClasses.size());
+    for (LambdaClass lambdaClass : lambdaClasses) {
+      futures.add(executorService.submit(() -> {
+        if (lambdaClassCache != null && lambdaClass.hostIndependent) {
+          DexProgramClass cachedClass = lambdaClassCache.lookup(lambdaClass.type, factory);
+          if (cachedClass != null) {
+            return cachedClass;
+          }
+        }
+        DexProgramClass synthesizedClass = lambdaClass.synthesizeLambdaClass();
+        converter.optimizeSynthesizedClass(synthesizedClass);
+        return synthesizedClass;
+      }));
+    }
+    List<DexProgramClass> synthesizedClasses = ThreadUtils.awaitFutures(futures);
+    for (int i = 0; i < lambdaClasses.size(); i++) {
+      builder.addSynthesizedClass(
+          synthesizedClasses.get(i), lambdaClasses.get(i).addToMainDexList.get());
     }
   }
 
@@ -214,11 +237,11 @@ public class LambdaRewriter {
   //
   // Returns the lambda descriptor or `MATCH_FAILED`.
   private LambdaDescriptor inferLambdaDescriptor(DexCallSite callSite) {
-    // We check the map before and after inferring lambda descriptor to minimize time
-    // spent in synchronized block. As a result we may throw away calculated descriptor
+    // We check the map before and after inferring lambda descriptor instead of inferring it
+    // while holding on to the map entry. As a result we may throw away calculated descriptor
     // in rare case when another thread has same call site processed concurrently,
-    // but this is a low price to pay comparing to making whole method synchronous.
-    LambdaDescriptor descriptor = getKnown(knownCallSites, callSite);
+    // but this is a low price to pay comparing to blocking the other thread.
+    LambdaDescriptor descriptor = knownCallSites.get(callSite);
     return descriptor != null ? descriptor
         : putIfAbsent(knownCallSites, callSite, LambdaDescriptor.infer(this, callSite));
   }
@@ -231,8 +254,8 @@ public class LambdaRewriter {
   // creates the class if it does not yet exist.
   private LambdaClass getOrCreateLambdaClass(LambdaDescriptor descriptor, DexType accessedFrom) {
     DexType lambdaClassType = LambdaClass.createLambdaClassType(this, accessedFrom, descriptor);
-    // We check the map twice to to minimize time spent in synchronized block.
-    LambdaClass lambdaClass = getKnown(knownLambdaClasses, lambdaClassType);
+    // We check the map twice to avoid creating a lambda class for every invocation point.
+    LambdaClass lambdaClass = knownLambdaClasses.get(lambdaClassType);
     if (lambdaClass == null) {
       lambdaClass = putIfAbsent(knownLambdaClasses, lambdaClassType,
           new LambdaClass(this, accessedFrom, lambdaClassType, descriptor));
@@ -243,21 +266,9 @@ public class LambdaRewriter {
     return lambdaClass;
   }
 
-  private <K, V> V getKnown(Map<K, V> map, K key) {
-    synchronized (map) {
-      return map.get(key);
-    }
-  }
-
   private <K, V> V putIfAbsent(Map<K, V> map, K key, V value) {
-    synchronized (map) {
-      V known = map.get(key);
-      if (known != null) {
-        return known;
-      }
-      map.put(key, value);
-      return value;
-    }
+    V known = map.putIfAbsent(key, value);
+    return known != null ? known : value;
   }
 
   // Patches invoke-custom instruction to create or get an instance
@@ -68,9 +68,7 @@ import com.android.tools.r8.utils.IteratorUtils;
 import com.android.tools.r8.utils.LongInterval;
 import com.google.common.base.Equivalence;
 import com.google.common.base.Equivalence.Wrapper;
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
 import it.unimi.dsi.fastutil.ints.Int2IntArrayMap;
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
@@ -829,7 +827,7 @@ public class CodeRewriter {
     // section 5.5, https://docs.oracle.com/javase/specs/jvms/se8/html/jvms-5.html#jvms-5.5), this
     // does not matter (except maybe for removal of const-string instructions, but that is
     // acceptable).
-    DominatorTree dominatorTree = new DominatorTree(code);
+    DominatorTree dominatorTree = code.getDominatorTree();
     BasicBlock exit = code.getNormalExitBlock();
     if (exit == null) {
       return;
@@ -1048,7 +1046,7 @@ public class CodeRewriter {
     // TODO(ager): Generalize this to shorten live ranges for more instructions? Currently
     // doing so seems to make things worse.
     Map<BasicBlock, List<Instruction>> addConstantInBlock = new HashMap<>();
-    DominatorTree dominatorTree = new DominatorTree(code);
+    DominatorTree dominatorTree = code.getDominatorTree();
     BasicBlock block = code.blocks.get(0);
     InstructionListIterator it = block.listIterator();
     List<Instruction> toInsertInThisBlock = new ArrayList<>();
@@ -1386,12 +1384,29 @@ public class CodeRewriter {
   }
 
   public void commonSubexpressionElimination(IRCode code) {
-    final ListMultimap<Wrapper<Instruction>, Value> instructionToValue = ArrayListMultimap.create();
-    final DominatorTree dominatorTree = new DominatorTree(code);
+    // Values of the instructions in the blocks on the path from the entry block to the current
+    // block in the dominator tree, i.e., the candidates that dominate the current instruction.
+    final Map<Wrapper<Instruction>, List<Value>> instructionToValues = new HashMap<>();
+    final DominatorTree dominatorTree = code.getDominatorTree();
     final ExpressionEquivalence equivalence = new ExpressionEquivalence();
-
-    for (int i = 0; i < dominatorTree.getSortedBlocks().length; i++) {
-      BasicBlock block = dominatorTree.getSortedBlocks()[i];
+    // The blocks on the path to the current block and the instructions they added.
+    final List<BasicBlock> scopes = new ArrayList<>();
+    final List<List<Wrapper<Instruction>>> scopeInstructions = new ArrayList<>();
+
+    for (BasicBlock block : dominatorTree.getBlocksInPreorder()) {
+      while (!scopes.isEmpty()
+          && !dominatorTree.dominatedBy(block, scopes.get(scopes.size() - 1))) {
+        scopes.remove(scopes.size() - 1);
+        List<Wrapper<Instruction>> added = scopeInstructions.remove(scopeInstructions.size() - 1);
+        for (int i = added.size() - 1; i >= 0; i--) {
+          List<Value> values = instructionToValues.get(added.get(i));
+          values.remove(values.size() - 1);
+          if (values.isEmpty()) {
+            instructionToValues.remove(added.get(i));
+          }
+        }
+      }
+      List<Wrapper<Instruction>> added = new ArrayList<>();
       Iterator<Instruction> iterator = block.iterator();
       while (iterator.hasNext()) {
         Instruction instruction = iterator.next();
@@ -1399,12 +1414,12 @@ public class CodeRewriter {
             || instruction.isUnop()
             || instruction.isInstanceOf()
             || instruction.isCheckCast()) {
-          List<Value> candidates = instructionToValue.get(equivalence.wrap(instruction));
+          Wrapper<Instruction> wrapper = equivalence.wrap(instruction);
+          List<Value> candidates = instructionToValues.get(wrapper);
           boolean eliminated = false;
-          if (candidates.size() > 0) {
+          if (candidates != null) {
             for (Value candidate : candidates) {
-              if (dominatorTree.dominatedBy(block, candidate.definition.getBlock()) &&
-                  shareCatchHandlers(instruction, candidate.definition)) {
+              if (shareCatchHandlers(instruction, candidate.definition)) {
                 instruction.outValue().replaceUsers(candidate);
                 eliminated = true;
                 iterator.remove();
@@ -1413,16 +1428,20 @@ public class CodeRewriter {
             }
           }
           if (!eliminated) {
-            instructionToValue.put(equivalence.wrap(instruction), instruction.outValue());
+            instructionToValues.computeIfAbsent(wrapper, k -> new ArrayList<>(1))
+                .add(instruction.outValue());
+            added.add(wrapper);
           }
         }
       }
+      scopes.add(block);
+      scopeInstructions.add(added);
     }
     assert code.isConsistentSSA();
   }
 
   public void simplifyIf(IRCode code) {
-    DominatorTree dominator = new DominatorTree(code);
+    DominatorTree dominator = code.getDominatorTree();
     code.clearMarks();
     for (BasicBlock block : code.blocks) {
       if (block.isMarked()) {
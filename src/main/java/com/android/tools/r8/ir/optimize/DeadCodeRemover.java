@@ -23,7 +23,7 @@ public class DeadCodeRemover {
   public static void removeDeadCode(
       IRCode code, CodeRewriter codeRewriter, InternalOptions options) {
     Queue<BasicBlock> worklist = new LinkedList<>();
-    DominatorTree dominator = new DominatorTree(code);
+    DominatorTree dominator = code.getDominatorTree();
     code.clearMarks();
     worklist.addAll(code.blocks);
     for (BasicBlock block = worklist.poll(); block != null; block = worklist.poll()) {
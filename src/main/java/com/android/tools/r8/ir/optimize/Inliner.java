@@ -417,7 +417,7 @@ public class Inliner {
   // }
   //
   private void computeReceiverMustBeNonNull(IRCode code) {
-    DominatorTree dominatorTree = new DominatorTree(code);
+    DominatorTree dominatorTree = code.getDominatorTree();
     InstructionIterator it = code.instructionIterator();
     while (it.hasNext()) {
       Instruction instruction = it.next();
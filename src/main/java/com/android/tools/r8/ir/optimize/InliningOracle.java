@@ -93,7 +93,7 @@ public class InliningOracle {
     // 10 is found from measuring.
     return callGraph.hasDoubleCallSite(candidate)
         && candidate.getCode().isDexCode()
-        && (candidate.getCode().asDexCode().instructions.length <= 10);
+        && (candidate.getCode().asDexCode().getInstructions().length <= 10);
   }
 
   private boolean passesInliningConstraints(InvokeMethod invoke, DexEncodedMethod candidate,
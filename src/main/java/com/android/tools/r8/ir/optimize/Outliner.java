@@ -47,6 +47,8 @@ import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.StringUtils;
 import com.android.tools.r8.utils.StringUtils.BraceType;
 import com.google.common.collect.Sets;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -54,13 +56,26 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class Outliner {
 
   private final InternalOptions options;
-  private final Map<Outline, List<DexEncodedMethod>> candidates = new HashMap<>();
+  // Candidate tables of the threads processing methods in phase 1. Each thread records its
+  // candidates in its own table, and the tables are merged into candidates once phase 1 is done.
+  // The thread local is dropped by the merge, so pooled threads do not keep their tables and
+  // candidates identified after the merge are not silently lost.
+  private final Queue<CandidateTable> threadCandidateTables = new ConcurrentLinkedQueue<>();
+  private ThreadLocal<CandidateTable> threadCandidateTable =
+      ThreadLocal.withInitial(this::createThreadCandidateTable);
+  private final CandidateTable candidates = new CandidateTable();
   private final Map<Outline, DexMethod> generatedOutlines = new HashMap<>();
+  // Outlines used by the rewritten code. Candidates are identified on the code of phase 1 but
+  // applied to the final code of the methods, which can differ, so an outline can end up unused.
+  private final Set<Outline> appliedOutlines = Sets.newConcurrentHashSet();
+  private DexType outlineClassType;
   private final Set<DexEncodedMethod> methodsSelectedForOutlining = Sets.newIdentityHashSet();
 
   static final int MAX_IN_SIZE = 5;  // Avoid using ranged calls for outlined code.
@@ -90,6 +105,10 @@ public class Outliner {
   // The actual value numbers (in this example v5, v6, v9 are "arbitrary", as the instruction in
   // the outline are taken from the block where they are collected as candidates. The comparison
   // of two outlines rely on the instructions and the argument mapping *not* the concrete values.
+  //
+  // Each outline also carries a fingerprint computed while the instructions are spotted (see
+  // OutlineSpotter.fingerprint). Equal outlines have equal fingerprints, so the fingerprint is
+  // used as the hash code and to look up a sequence of instructions without building an outline.
   public class Outline implements Comparable<Outline> {
 
     final List<Value> arguments;
@@ -97,17 +116,19 @@ public class Outliner {
     final List<Integer> argumentMap;
     final List<Instruction> templateInstructions = new ArrayList<>();
     final public DexType returnType;
+    final long fingerprint;
 
     private DexProto proto;
 
     // Build an outline over the instructions [start, end[.
     // The arguments are the arguments to pass to an outline of these instructions.
     Outline(BasicBlock block, List<Value> arguments, List<DexType> argumentTypes,
-        List<Integer> argumentMap, DexType returnType, int start, int end) {
+        List<Integer> argumentMap, DexType returnType, long fingerprint, int start, int end) {
       this.arguments = arguments;
       this.argumentTypes = argumentTypes;
       this.argumentMap = argumentMap;
       this.returnType = returnType;
+      this.fingerprint = fingerprint;
 
       List<Instruction> instructions = block.getInstructions();
       for (int i = start; i < end; i++) {
@@ -139,11 +160,43 @@ public class Outliner {
       return dexItemFactory.createMethod(clazz, buildProto(), name);
     }
 
+    // Check if the instructions [start, end[ with the given argument map and return type would
+    // give an outline equal to this one. Const instructions in the range are not part of the
+    // template, and are skipped.
+    boolean matches(List<Instruction> instructions, int start, int end,
+        List<Integer> otherArgumentMap, DexType otherReturnType, long otherFingerprint) {
+      if (fingerprint != otherFingerprint
+          || returnType != otherReturnType
+          || !argumentMap.equals(otherArgumentMap)) {
+        return false;
+      }
+      int templateIndex = 0;
+      for (int i = start; i < end; i++) {
+        Instruction instruction = instructions.get(i);
+        if (instruction.isConstInstruction()) {
+          continue;
+        }
+        if (templateIndex == templateInstructions.size()) {
+          return false;
+        }
+        Instruction template = templateInstructions.get(templateIndex++);
+        if (template.getClass() != instruction.getClass()
+            || !template.identicalNonValueParts(instruction)
+            || (template.outValue() != null) != (instruction.outValue() != null)) {
+          return false;
+        }
+      }
+      return templateIndex == templateInstructions.size();
+    }
+
     @Override
     public boolean equals(Object other) {
       if (!(other instanceof Outline)) {
         return false;
       }
+      if (fingerprint != ((Outline) other).fingerprint) {
+        return false;
+      }
       List<Instruction> instructions0 = this.templateInstructions;
       List<Instruction> instructions1 = ((Outline) other).templateInstructions;
       if (instructions0.size() != instructions1.size()) {
@@ -165,19 +218,7 @@ public class Outliner {
 
     @Override
     public int hashCode() {
-      final int MAX_HASH_INSTRUCTIONS = 5;
-
-      int hash = templateInstructions.size();
-      int hashPart = 0;
-      for (int i = 0; i < templateInstructions.size() && i < MAX_HASH_INSTRUCTIONS; i++) {
-        Instruction instruction = templateInstructions.get(i);
-        if (instruction.isInvokeMethod()) {
-          hashPart = hashPart << 4;
-          hashPart += instruction.asInvokeMethod().getInvokedMethod().hashCode();
-        }
-        hash = hash * 3 + hashPart;
-      }
-      return hash;
+      return (int) (fingerprint ^ (fingerprint >>> 32));
     }
 
     @Override
@@ -303,14 +344,17 @@ public class Outliner {
     int start;
     int index;
     int actualInstructions;
-    List<Value> arguments;
-    List<DexType> argumentTypes;
-    List<Integer> argumentsMap;
+    final List<Value> arguments = new ArrayList<>(MAX_IN_SIZE);
+    final List<DexType> argumentTypes = new ArrayList<>(MAX_IN_SIZE);
+    final List<Integer> argumentsMap = new ArrayList<>(MAX_IN_SIZE);
     int argumentRegisters;
     DexType returnType;
     Value returnValue;
     int returnValueUsersLeft;
     int pendingNewInstanceIndex = -1;
+    // Rolling fingerprint of the included instructions and the arguments map. The return type is
+    // only known when the candidate ends, so it is folded in by candidateFingerprint.
+    long fingerprint;
 
     OutlineSpotter(DexEncodedMethod method, BasicBlock block) {
       this.method = method;
@@ -505,6 +549,10 @@ public class Outliner {
         }
       }
 
+      if (!instruction.isConstInstruction()) {
+        updateFingerprint(instruction);
+      }
+
       if (instruction.isNewInstance()) {
         assert returnValue == null;
         updateReturnValueState(instruction.outValue(), instruction.asNewInstance().clazz);
@@ -518,7 +566,7 @@ public class Outliner {
         for (int i = 0; i < inValues.size(); i++) {
           Value value = inValues.get(i);
           if (value == prevReturnValue) {
-            argumentsMap.add(-1);
+            addToArgumentsMap(-1);
             continue;
           }
           if (instruction.isInvoke()
@@ -528,7 +576,7 @@ public class Outliner {
             int argumentIndex = arguments.indexOf(value);
             // For virtual calls only re-use the receiver argument.
             if (i == 0 && argumentIndex != -1) {
-              argumentsMap.add(argumentIndex);
+              addToArgumentsMap(argumentIndex);
             } else {
               arguments.add(value);
               argumentRegisters += value.requiredRegisters();
@@ -545,7 +593,7 @@ public class Outliner {
                 // -1 due to receiver
                 argumentTypes.add(methodProto.parameters.values[i - 1]);
               }
-              argumentsMap.add(arguments.size() - 1);
+              addToArgumentsMap(arguments.size() - 1);
             }
           } else {
             arguments.add(value);
@@ -555,7 +603,7 @@ public class Outliner {
             } else {
               argumentTypes.add(instruction.asBinop().getNumericType().dexTypeFor(dexItemFactory));
             }
-            argumentsMap.add(arguments.size() - 1);
+            addToArgumentsMap(arguments.size() - 1);
           }
         }
       }
@@ -573,6 +621,41 @@ public class Outliner {
       }
     }
 
+    private void addToArgumentsMap(int argumentIndex) {
+      argumentsMap.add(argumentIndex);
+      fingerprint = fingerprint * 31 + argumentIndex;
+    }
+
+    // Fold the parts of the instruction compared by Outline.equals into the fingerprint.
+    private void updateFingerprint(Instruction instruction) {
+      int hash;
+      if (instruction.isInvoke()) {
+        Invoke invoke = instruction.asInvoke();
+        hash = invoke.getType().ordinal();
+        if (invoke.isInvokeMethod()) {
+          hash = hash * 7 + invoke.asInvokeMethod().getInvokedMethod().hashCode();
+        }
+      } else if (instruction.isNewInstance()) {
+        hash = instruction.asNewInstance().clazz.hashCode();
+      } else {
+        assert instruction.isArithmeticBinop();
+        hash = instruction.asBinop().getNumericType().ordinal();
+      }
+      hash = hash * 2 + (instruction.outValue() != null ? 1 : 0);
+      fingerprint = fingerprint * 0x100000001b3L + hash;
+    }
+
+    private long candidateFingerprint() {
+      return fingerprint * 31 + returnType.hashCode();
+    }
+
+    // Build the outline for the candidate [start, end[. The argument lists are reused by the
+    // spotter, so the outline gets its own copies.
+    Outline buildOutline(int start, int end, long candidateFingerprint) {
+      return new Outline(block, new ArrayList<>(arguments), new ArrayList<>(argumentTypes),
+          new ArrayList<>(argumentsMap), returnType, candidateFingerprint, start, end);
+    }
+
     private void updateReturnValueState(Value newReturnValue, DexType newReturnType) {
       returnValueUsersLeft = newReturnValue.numberOfAllUsers();
       // If the return value is not used don't track it.
@@ -586,7 +669,7 @@ public class Outliner {
     }
 
 
-    protected abstract void handle(int start, int end, Outline outline);
+    protected abstract void handle(int start, int end, long candidateFingerprint);
 
     private void candidate(int start, int index) {
       assert !instructions.get(start).isConstInstruction();
@@ -618,9 +701,7 @@ public class Outliner {
         return;
       }
 
-      Outline outline = new Outline(
-          block, arguments, argumentTypes, argumentsMap, returnType, start, end);
-      handle(start, end, outline);
+      handle(start, end, candidateFingerprint());
 
       // Start a new candidate search from the next instruction after this outline.
       reset(index);
@@ -631,29 +712,107 @@ public class Outliner {
       start = startIndex;
       index = startIndex;
       actualInstructions = 0;
-      arguments = new ArrayList<>(MAX_IN_SIZE);
-      argumentTypes = new ArrayList<>(MAX_IN_SIZE);
-      argumentsMap = new ArrayList<>(MAX_IN_SIZE);
+      arguments.clear();
+      argumentTypes.clear();
+      argumentsMap.clear();
       argumentRegisters = 0;
       returnType = dexItemFactory.voidType;
       returnValue = null;
       returnValueUsersLeft = 0;
       pendingNewInstanceIndex = -1;
+      fingerprint = 0;
+    }
+  }
+
+  // Outline candidates with the methods that can use them. The candidates are bucketed by
+  // fingerprint, which makes it possible to look up a sequence of instructions in a block without
+  // building an outline for it.
+  private class CandidateTable {
+
+    private final Long2ObjectMap<List<Outline>> outlines = new Long2ObjectOpenHashMap<>();
+    private final Map<Outline, List<DexEncodedMethod>> methods = new HashMap<>();
+
+    // Find the outline for the candidate currently found by the spotter, or null if none.
+    Outline lookup(OutlineSpotter spotter, int start, int end, long candidateFingerprint) {
+      List<Outline> bucket = outlines.get(candidateFingerprint);
+      if (bucket != null) {
+        for (Outline outline : bucket) {
+          if (outline.matches(spotter.instructions, start, end, spotter.argumentsMap,
+              spotter.returnType, candidateFingerprint)) {
+            return outline;
+          }
+        }
+      }
+      return null;
+    }
+
+    void add(OutlineSpotter spotter, int start, int end, long candidateFingerprint) {
+      Outline outline = lookup(spotter, start, end, candidateFingerprint);
+      if (outline == null) {
+        outline = spotter.buildOutline(start, end, candidateFingerprint);
+        addOutline(outline);
+      }
+      methods.get(outline).add(spotter.method);
+    }
+
+    void addAll(CandidateTable other) {
+      for (Entry<Outline, List<DexEncodedMethod>> entry : other.methods.entrySet()) {
+        List<DexEncodedMethod> outlineMethods = methods.get(entry.getKey());
+        if (outlineMethods == null) {
+          addOutline(entry.getKey());
+          outlineMethods = methods.get(entry.getKey());
+        }
+        outlineMethods.addAll(entry.getValue());
+      }
+    }
+
+    private void addOutline(Outline outline) {
+      outlines.computeIfAbsent(outline.fingerprint, k -> new ArrayList<>(1)).add(outline);
+      methods.put(outline, new ArrayList<>());
+    }
+
+    void remove(Outline outline) {
+      List<Outline> bucket = outlines.get(outline.fingerprint);
+      bucket.remove(outline);
+      if (bucket.isEmpty()) {
+        outlines.remove(outline.fingerprint);
+      }
+      methods.remove(outline);
     }
+
+    Map<Outline, List<DexEncodedMethod>> asMap() {
+      return methods;
+    }
+
+    int size() {
+      return methods.size();
+    }
+
+    void clear() {
+      outlines.clear();
+      methods.clear();
+    }
+  }
+
+  private CandidateTable createThreadCandidateTable() {
+    CandidateTable table = new CandidateTable();
+    threadCandidateTables.add(table);
+    return table;
   }
 
   // Collect outlining candidates with the methods that can use them.
   // TODO(sgjesse): This does not take several usages in the same method into account.
   private class OutlineIdentifier extends OutlineSpotter {
 
-    OutlineIdentifier(DexEncodedMethod method, BasicBlock block) {
+    private final CandidateTable table;
+
+    OutlineIdentifier(DexEncodedMethod method, BasicBlock block, CandidateTable table) {
       super(method, block);
+      this.table = table;
     }
 
-    protected void handle(int start, int end, Outline outline) {
-      synchronized (candidates) {
-        candidates.computeIfAbsent(outline, k -> new ArrayList<>()).add(method);
-      }
+    protected void handle(int start, int end, long candidateFingerprint) {
+      table.add(this, start, end, candidateFingerprint);
     }
   }
 
@@ -665,6 +824,7 @@ public class Outliner {
     private final List<Integer> toRemove;
     int argumentsMapIndex;
     Value returnValue;
+    boolean applied;
 
     OutlineRewriter(
         DexEncodedMethod method, IRCode code,
@@ -675,10 +835,13 @@ public class Outliner {
       this.toRemove = toRemove;
     }
 
-    protected void handle(int start, int end, Outline outline) {
-      if (candidates.containsKey(outline)) {
+    protected void handle(int start, int end, long candidateFingerprint) {
+      Outline outline = candidates.lookup(this, start, end, candidateFingerprint);
+      if (outline != null) {
         DexMethod m = generatedOutlines.get(outline);
         assert m != null;
+        appliedOutlines.add(outline);
+        applied = true;
         List<Instruction> instructions = block.getInstructions();
         List<Value> in = new ArrayList<>();
         returnValue = null;
@@ -736,15 +899,30 @@ public class Outliner {
 
   public void identifyCandidates(IRCode code, DexEncodedMethod method) {
     assert !(method.getCode() instanceof OutlineCode);
+    if (threadCandidateTable == null) {
+      throw new Unreachable("Outline candidates identified after the candidates were selected");
+    }
+    CandidateTable table = threadCandidateTable.get();
     for (BasicBlock block : code.blocks) {
-      new OutlineIdentifier(method, block).process();
+      new OutlineIdentifier(method, block, table).process();
+    }
+  }
+
+  // Merge the candidates found by the individual threads.
+  private void mergeThreadCandidateTables() {
+    threadCandidateTable = null;
+    CandidateTable table;
+    while ((table = threadCandidateTables.poll()) != null) {
+      candidates.addAll(table);
+      table.clear();
     }
   }
 
   public boolean selectMethodsForOutlining() {
     assert methodsSelectedForOutlining.size() == 0;
+    mergeThreadCandidateTables();
     List<Outline> toRemove = new ArrayList<>();
-    for (Entry<Outline, List<DexEncodedMethod>> entry : candidates.entrySet()) {
+    for (Entry<Outline, List<DexEncodedMethod>> entry : candidates.asMap().entrySet()) {
       if (entry.getValue().size() < options.outline.threshold) {
         toRemove.add(entry.getKey());
       } else {
@@ -761,15 +939,20 @@ public class Outliner {
     return methodsSelectedForOutlining;
   }
 
-  public void applyOutliningCandidate(IRCode code, DexEncodedMethod method) {
+  // Returns true if any outline was applied to the code.
+  public boolean applyOutliningCandidate(IRCode code, DexEncodedMethod method) {
     assert !(method.getCode() instanceof OutlineCode);
+    boolean applied = false;
     ListIterator<BasicBlock> blocksIterator = code.blocks.listIterator();
     while (blocksIterator.hasNext()) {
       BasicBlock block = blocksIterator.next();
       List<Integer> toRemove = new ArrayList<>();
-      new OutlineRewriter(method, code, blocksIterator, block, toRemove).process();
+      OutlineRewriter rewriter = new OutlineRewriter(method, code, blocksIterator, block, toRemove);
+      rewriter.process();
       block.removeInstructions(toRemove);
+      applied |= rewriter.applied;
     }
+    return applied;
   }
 
   static public void noProcessing(IRCode code, DexEncodedMethod method) {
@@ -1002,28 +1185,41 @@ public class Outliner {
   }
 
 
-  public DexProgramClass buildOutlinerClass(DexType type) {
-    if (candidates.size() == 0) {
-      return null;
-    }
-
-    // Build the outlined methods.
-    DexEncodedMethod[] direct = new DexEncodedMethod[candidates.size()];
-    int count = 0;
-
+  // Create the methods for the selected outlines in the given class. This must be done before the
+  // outlines are applied.
+  public void createOutlineMethods(DexType type) {
+    assert generatedOutlines.isEmpty();
+    outlineClassType = type;
     // By now the candidates are the actual selected outlines. Name the generated methods in a
     // consistent order, to provide deterministic output.
-    List<Outline> outlines = new ArrayList<>(candidates.keySet());
-    outlines.sort(Comparator.naturalOrder());
-    for (Outline outline : outlines) {
-      DexAccessFlags methodAccess = new DexAccessFlags(Constants.ACC_PUBLIC, Constants.ACC_STATIC);
+    int count = 0;
+    for (Outline outline : sortedOutlines()) {
       DexString methodName = dexItemFactory.createString(options.outline.methodPrefix + count);
-      DexMethod method = outline.buildMethod(type, methodName);
-      direct[count] = new DexEncodedMethod(method, methodAccess, DexAnnotationSet.empty(),
-          DexAnnotationSetRefList.empty(), new OutlineCode(outline));
-      generatedOutlines.put(outline, method);
+      generatedOutlines.put(outline, outline.buildMethod(type, methodName));
       count++;
     }
+  }
+
+  private List<Outline> sortedOutlines() {
+    List<Outline> outlines = new ArrayList<>(candidates.asMap().keySet());
+    outlines.sort(Comparator.naturalOrder());
+    return outlines;
+  }
+
+  // Build the class holding the outline methods that were applied, or null if none were.
+  public DexProgramClass buildOutlinerClass() {
+    List<DexEncodedMethod> direct = new ArrayList<>();
+    for (Outline outline : sortedOutlines()) {
+      if (appliedOutlines.contains(outline)) {
+        DexAccessFlags methodAccess =
+            new DexAccessFlags(Constants.ACC_PUBLIC, Constants.ACC_STATIC);
+        direct.add(new DexEncodedMethod(generatedOutlines.get(outline), methodAccess,
+            DexAnnotationSet.empty(), DexAnnotationSetRefList.empty(), new OutlineCode(outline)));
+      }
+    }
+    if (direct.isEmpty()) {
+      return null;
+    }
     // No need to sort the direct methods as they are generated in sorted order.
 
     // Build the outliner class.
@@ -1032,7 +1228,7 @@ public class Outliner {
     DexString sourceFile = dexItemFactory.createString("outline");
     DexAccessFlags accessFlags = new DexAccessFlags(Constants.ACC_PUBLIC);
     DexProgramClass clazz = new DexProgramClass(
-        type,
+        outlineClassType,
         null,
         accessFlags,
         superType,
@@ -1042,7 +1238,7 @@ public class Outliner {
         DexAnnotationSet.empty(),
         DexEncodedField.EMPTY_ARRAY, // Static fields.
         DexEncodedField.EMPTY_ARRAY, // Instance fields.
-        direct,
+        direct.toArray(new DexEncodedMethod[direct.size()]),
         DexEncodedMethod.EMPTY_ARRAY // Virtual methods.
     );
 
@@ -80,6 +80,10 @@ public class ClassNameMapper {
     return classNameMappings.get(name);
   }
 
+  /**
+   * Writes the mapping class by class. The members of classes that have not been looked up are
+   * parsed only for the duration of writing their class.
+   */
   public void write(Writer writer, boolean collapseRanges) throws IOException {
     for (ClassNaming naming : classNameMappings.values()) {
       naming.write(writer, collapseRanges);
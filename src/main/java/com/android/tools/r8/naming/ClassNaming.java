@@ -7,6 +7,7 @@ import com.android.tools.r8.naming.MemberNaming.Signature;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -27,7 +28,14 @@ public class ClassNaming {
    * A renamed signature is a signature where the member's name has been obfuscated but not the type
    * information.
    **/
-  final Map<Signature, MemberNaming> members = new LinkedHashMap<>();
+  private final Map<Signature, MemberNaming> members = new LinkedHashMap<>();
+
+  /**
+   * The not yet parsed member mappings of a class that was indexed by
+   * {@link ProguardMapReader#mapperFromBuffer}, or null if all members have been parsed.
+   */
+  private volatile ByteBuffer unparsedMembers;
+  private int classLineNo;
 
   ClassNaming(String renamedName, String originalName) {
     this.renamedName = renamedName;
@@ -39,12 +47,30 @@ public class ClassNaming {
     members.put(renamedSignature, entry);
   }
 
+  void setUnparsedMembers(ByteBuffer unparsedMembers, int classLineNo) {
+    assert members.isEmpty();
+    this.classLineNo = classLineNo;
+    this.unparsedMembers = unparsedMembers;
+  }
+
+  private Map<Signature, MemberNaming> members() {
+    if (unparsedMembers != null) {
+      synchronized (this) {
+        if (unparsedMembers != null) {
+          ProguardMapReader.parseMemberMappings(this, unparsedMembers, classLineNo);
+          unparsedMembers = null;
+        }
+      }
+    }
+    return members;
+  }
+
   public MemberNaming lookup(Signature renamedSignature) {
-    return members.get(renamedSignature);
+    return members().get(renamedSignature);
   }
 
   public MemberNaming lookupByOriginalSignature(Signature original) {
-    for (MemberNaming naming : members.values()) {
+    for (MemberNaming naming : members().values()) {
       if (naming.signature.equals(original)) {
         return naming;
       }
@@ -53,10 +79,19 @@ public class ClassNaming {
   }
 
   public void forAllMemberNaming(Consumer<MemberNaming> consumer) {
-    members.values().forEach(consumer);
+    members().values().forEach(consumer);
   }
 
   void write(Writer writer, boolean collapseRanges) throws IOException {
+    ByteBuffer unparsed = unparsedMembers;
+    if (unparsed != null) {
+      // Write from a temporary copy, such that writing a whole mapping does not keep the members
+      // of all classes alive.
+      ClassNaming parsed = new ClassNaming(renamedName, originalName);
+      ProguardMapReader.parseMemberMappings(parsed, unparsed, classLineNo);
+      parsed.write(writer, collapseRanges);
+      return;
+    }
     writer.append(originalName);
     writer.append(" -> ");
     writer.append(renamedName);
@@ -90,7 +125,7 @@ public class ClassNaming {
 
     return originalName.equals(that.originalName)
         && renamedName.equals(that.renamedName)
-        && members.equals(that.members);
+        && members().equals(that.members());
 
   }
 
@@ -98,7 +133,7 @@ public class ClassNaming {
   public int hashCode() {
     int result = originalName.hashCode();
     result = 31 * result + renamedName.hashCode();
-    result = 31 * result + members.hashCode();
+    result = 31 * result + members().hashCode();
     return result;
   }
 }
@@ -15,12 +15,15 @@ import com.android.tools.r8.utils.Timing;
 import com.google.common.collect.ImmutableList;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 class FieldNameMinifier {
 
   private final AppInfoWithSubtyping appInfo;
   private final RootSet rootSet;
-  private final Map<DexField, DexString> renaming = new IdentityHashMap<>();
+  private final Map<DexField, DexString> renaming = new ConcurrentHashMap<>();
   private final ImmutableList<String> dictionary;
   private final Map<DexType, NamingState<DexType>> states = new IdentityHashMap<>();
 
@@ -30,7 +33,8 @@ class FieldNameMinifier {
     this.dictionary = options.proguardConfiguration.getObfuscationDictionary();
   }
 
-  Map<DexField, DexString> computeRenaming(Timing timing) {
+  Map<DexField, DexString> computeRenaming(Timing timing, ExecutorService executorService)
+      throws ExecutionException {
     NamingState<DexType> rootState = NamingState.createRoot(appInfo.dexItemFactory, dictionary);
     // Reserve names in all classes first. We do this in subtyping order so we do not
     // shadow a reserved field in subclasses. While there is no concept of virtual field
@@ -44,9 +48,12 @@ class FieldNameMinifier {
     DexType.forAllInterfaces(appInfo.dexItemFactory,
         iface -> reserveNamesInSubtypes(iface, rootState));
     timing.end();
-    // Now rename the rest.
+    // Now rename the rest. The names picked in a class only depend on the names reserved in the
+    // class and its supertypes, so all classes that are at the same depth in the hierarchy are
+    // renamed in parallel.
     timing.begin("rename");
-    renameFieldsInSubtypes(appInfo.dexItemFactory.objectType);
+    Minifier.forAllExtendsSubtypesTopDown(
+        appInfo.dexItemFactory.objectType, this::renameFieldsInClass, dictionary, executorService);
     DexType.forAllInterfaces(appInfo.dexItemFactory, this::renameFieldsInSubtypes);
     timing.end();
     return renaming;
@@ -73,14 +80,20 @@ class FieldNameMinifier {
   }
 
   private void renameFieldsInSubtypes(DexType type) {
+    if (renameFieldsInClass(type)) {
+      type.forAllExtendsSubtypes(this::renameFieldsInSubtypes);
+    }
+  }
+
+  private boolean renameFieldsInClass(DexType type) {
     DexClass clazz = appInfo.definitionFor(type);
     if (clazz == null) {
-      return;
+      return false;
     }
     NamingState<DexType> state = states.get(clazz.type);
     assert state != null;
     clazz.forEachField(field -> renameField(field, state));
-    type.forAllExtendsSubtypes(this::renameFieldsInSubtypes);
+    return true;
   }
 
   private void renameField(DexEncodedField encodedField, NamingState<DexType> state) {
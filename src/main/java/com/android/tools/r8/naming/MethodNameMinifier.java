@@ -26,6 +26,9 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * A pass to rename methods using common, short names.
@@ -77,7 +80,8 @@ import java.util.Set;
  * separate naming states for each class starting from the frontier. In the first swoop, we allocate
  * all non-private methods, updating naming states accordingly. In a second swoop, we then allocate
  * private methods, as those may safely use names that are used by a public method further down in
- * the subtyping tree.
+ * the subtyping tree. The names assigned in a class only depend on the naming states of its
+ * supertypes, so both swoops process all classes at the same depth of the hierarchy in parallel.
  * <p>
  * Finally, the computed renamings are returned as a map from {@link DexMethod} to
  * {@link DexString}. The MethodNameMinifier object should not be retained to ensure all
@@ -90,7 +94,7 @@ class MethodNameMinifier {
 
   private final AppInfoWithSubtyping appInfo;
   private final RootSet rootSet;
-  private final Map<DexType, NamingState<DexProto>> states = new IdentityHashMap<>();
+  private final Map<DexType, NamingState<DexProto>> states = new ConcurrentHashMap<>();
   private final NamingState<DexProto> globalState;
   private MethodSignatureEquivalence equivalence = MethodSignatureEquivalence.get();
   private final ImmutableList<String> dictionary;
@@ -102,7 +106,8 @@ class MethodNameMinifier {
     this.globalState = NamingState.createRoot(appInfo.dexItemFactory, dictionary);
   }
 
-  Map<DexMethod, DexString> computeRenaming(Timing timing) {
+  Map<DexMethod, DexString> computeRenaming(Timing timing, ExecutorService executorService)
+      throws ExecutionException {
     // Phase 1: Reserve all the names that need to be kept and allocate linked state in the
     //          library part.
     timing.begin("Phase 1");
@@ -120,22 +125,24 @@ class MethodNameMinifier {
     // Phase 3: Assign names to interface methods. These are assigned by finding a name that is
     //          free in all naming states that may hold an implementation.
     timing.begin("Phase 3");
-    Map<DexMethod, DexString> renaming = new IdentityHashMap<>();
+    Map<DexMethod, DexString> renaming = new ConcurrentHashMap<>();
     assignNamesToInterfaceMethods(frontierMap, renaming, timing);
     timing.end();
     // Phase 4: Assign names top-down by traversing the subtype hierarchy.
     timing.begin("Phase 4");
-    assignNamesToClassesMethods(appInfo.dexItemFactory.objectType, false, renaming);
+    Minifier.forAllExtendsSubtypesTopDown(appInfo.dexItemFactory.objectType,
+        type -> assignNamesToClassMethods(type, false, renaming), dictionary, executorService);
     timing.end();
     // Phase 4: Do the same for private methods.
     timing.begin("Phase 5");
-    assignNamesToClassesMethods(appInfo.dexItemFactory.objectType, true, renaming);
+    Minifier.forAllExtendsSubtypesTopDown(appInfo.dexItemFactory.objectType,
+        type -> assignNamesToClassMethods(type, true, renaming), dictionary, executorService);
     timing.end();
 
     return renaming;
   }
 
-  private void assignNamesToClassesMethods(DexType type, boolean doPrivates,
+  private boolean assignNamesToClassMethods(DexType type, boolean doPrivates,
       Map<DexMethod, DexString> renaming) {
     DexClass holder = appInfo.definitionFor(type);
     if (holder != null && !holder.isLibraryClass()) {
@@ -143,8 +150,7 @@ class MethodNameMinifier {
           .computeIfAbsent(type, k -> states.get(holder.superType).createChild());
       holder.forEachMethod(method -> assignNameToMethod(method, state, doPrivates, renaming));
     }
-    type.forAllExtendsSubtypes(
-        subtype -> assignNamesToClassesMethods(subtype, doPrivates, renaming));
+    return true;
   }
 
   private void assignNameToMethod(DexEncodedMethod encodedMethod,
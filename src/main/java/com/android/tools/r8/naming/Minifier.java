@@ -16,11 +16,17 @@ import com.android.tools.r8.optimize.MemberRebindingAnalysis;
 import com.android.tools.r8.shaking.Enqueuer.AppInfoWithLiveness;
 import com.android.tools.r8.shaking.RootSetBuilder.RootSet;
 import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
-import com.google.common.collect.Iterables;
-import java.util.IdentityHashMap;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class Minifier {
 
@@ -34,7 +40,8 @@ public class Minifier {
     this.options = options;
   }
 
-  public NamingLens run(Timing timing) {
+  public NamingLens run(Timing timing, ExecutorService executorService)
+      throws ExecutionException {
     assert !options.skipMinification;
     timing.begin("MinifyClasses");
     Map<DexType, DexString> classRenaming =
@@ -42,47 +49,103 @@ public class Minifier {
     timing.end();
     timing.begin("MinifyMethods");
     Map<DexMethod, DexString> methodRenaming =
-        new MethodNameMinifier(appInfo, rootSet, options).computeRenaming(timing);
+        new MethodNameMinifier(appInfo, rootSet, options)
+            .computeRenaming(timing, executorService);
     timing.end();
     timing.begin("MinifyFields");
     Map<DexField, DexString> fieldRenaming =
-        new FieldNameMinifier(appInfo, rootSet, options).computeRenaming(timing);
+        new FieldNameMinifier(appInfo, rootSet, options)
+            .computeRenaming(timing, executorService);
     timing.end();
     return new MinifiedRenaming(classRenaming, methodRenaming, fieldRenaming, appInfo);
   }
 
+  /**
+   * Visits {@code type} and all types that transitively extend it, one level of the subtype
+   * hierarchy at a time. The types of a level are visited in parallel once all types of the
+   * previous level have been visited, so a visitor may read the state of all supertypes of the
+   * type it is given. If the visitor returns false, the subtypes of that type are not visited.
+   * <p>
+   * The names picked from an obfuscation dictionary depend on the order in which all types are
+   * visited, so with a dictionary the types are visited sequentially in depth-first order.
+   */
+  static void forAllExtendsSubtypesTopDown(DexType type, Predicate<DexType> visitor,
+      ImmutableList<String> dictionary, ExecutorService executorService)
+      throws ExecutionException {
+    if (!dictionary.isEmpty()) {
+      forAllExtendsSubtypesDepthFirst(type, visitor);
+      return;
+    }
+    List<DexType> level = ImmutableList.of(type);
+    while (!level.isEmpty()) {
+      List<Future<Boolean>> futures = new ArrayList<>(level.size());
+      for (DexType current : level) {
+        futures.add(executorService.submit(() -> visitor.test(current)));
+      }
+      List<Boolean> visitSubtypes = ThreadUtils.awaitFutures(futures);
+      List<DexType> nextLevel = new ArrayList<>();
+      for (int i = 0; i < level.size(); i++) {
+        if (visitSubtypes.get(i)) {
+          level.get(i).forAllExtendsSubtypes(nextLevel::add);
+        }
+      }
+      level = nextLevel;
+    }
+  }
+
+  private static void forAllExtendsSubtypesDepthFirst(DexType type, Predicate<DexType> visitor) {
+    if (visitor.test(type)) {
+      type.forAllExtendsSubtypes(subtype -> forAllExtendsSubtypesDepthFirst(subtype, visitor));
+    }
+  }
+
+  /**
+   * The lens is queried for every type, field and method reference written to a dex file. The
+   * renamed names are stored on the items themselves, so a lookup is a field read. The items
+   * record which lens renamed them, so a lens does not see the names of another lens.
+   */
   private static class MinifiedRenaming extends NamingLens {
 
     private final AppInfo appInfo;
-    private final Map<DexItem, DexString> renaming = new IdentityHashMap<>();
+    private final DexType[] renamedTypes;
+    private final DexMethod[] renamedMethods;
+    private final DexField[] renamedFields;
 
     private MinifiedRenaming(Map<DexType, DexString> classRenaming,
         Map<DexMethod, DexString> methodRenaming, Map<DexField, DexString> fieldRenaming,
         AppInfo appInfo) {
       this.appInfo = appInfo;
-      renaming.putAll(classRenaming);
-      renaming.putAll(methodRenaming);
-      renaming.putAll(fieldRenaming);
+      classRenaming.forEach((type, descriptor) -> type.setRenamedDescriptor(this, descriptor));
+      methodRenaming.forEach((method, name) -> method.setRenamedName(this, name));
+      fieldRenaming.forEach((field, name) -> field.setRenamedName(this, name));
+      renamedTypes = classRenaming.keySet().toArray(new DexType[classRenaming.size()]);
+      renamedMethods = methodRenaming.keySet().toArray(new DexMethod[methodRenaming.size()]);
+      renamedFields = fieldRenaming.keySet().toArray(new DexField[fieldRenaming.size()]);
     }
 
     @Override
     public DexString lookupDescriptor(DexType type) {
-      return renaming.getOrDefault(type, type.descriptor);
+      DexString renamed = type.getRenamedDescriptor(this);
+      return renamed != null ? renamed : type.descriptor;
     }
 
     @Override
     public DexString lookupName(DexMethod method) {
-      return renaming.getOrDefault(method, method.name);
+      DexString renamed = method.getRenamedName(this);
+      return renamed != null ? renamed : method.name;
     }
 
     @Override
     public DexString lookupName(DexField field) {
-      return renaming.getOrDefault(field, field.name);
+      DexString renamed = field.getRenamedName(this);
+      return renamed != null ? renamed : field.name;
     }
 
     @Override
     void forAllRenamedTypes(Consumer<DexType> consumer) {
-      Iterables.filter(renaming.keySet(), DexType.class).forEach(consumer);
+      for (DexType type : renamedTypes) {
+        consumer.accept(type);
+      }
     }
 
     /**
@@ -128,20 +191,25 @@ public class Minifier {
     @Override
     public String toString() {
       StringBuilder builder = new StringBuilder();
-      renaming.forEach((item, str) -> {
-        if (item instanceof DexType) {
-          builder.append("[c] ");
-        } else if (item instanceof DexMethod) {
-          builder.append("[m] ");
-        } else if (item instanceof DexField) {
-          builder.append("[f] ");
-        }
-        builder.append(item.toSourceString());
-        builder.append(" -> ");
-        builder.append(str.toSourceString());
-        builder.append('\n');
-      });
+      for (DexType type : renamedTypes) {
+        appendRenaming(builder, "[c] ", type, lookupDescriptor(type));
+      }
+      for (DexMethod method : renamedMethods) {
+        appendRenaming(builder, "[m] ", method, lookupName(method));
+      }
+      for (DexField field : renamedFields) {
+        appendRenaming(builder, "[f] ", field, lookupName(field));
+      }
       return builder.toString();
     }
+
+    private static void appendRenaming(
+        StringBuilder builder, String kind, DexItem item, DexString renamed) {
+      builder.append(kind);
+      builder.append(item.toSourceString());
+      builder.append(" -> ");
+      builder.append(renamed.toSourceString());
+      builder.append('\n');
+    }
   }
 }
@@ -10,16 +10,18 @@ import com.android.tools.r8.utils.StringUtils;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
-import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 class NamingState<T extends CachedHashValueDexItem> {
 
   private final NamingState<T> parent;
-  private final Map<T, InternalState> usedNames = new IdentityHashMap<>();
+  // The states of a type are named in parallel with the states of its siblings, which may all
+  // create the internal states of their common parent on demand.
+  private final Map<T, InternalState> usedNames = new ConcurrentHashMap<>();
   private final DexItemFactory itemFactory;
   private final ImmutableList<String> dictionary;
 
@@ -53,13 +55,10 @@ class NamingState<T extends CachedHashValueDexItem> {
     // TODO(herhut): Maybe allocate these sparsely and search via state chain.
     InternalState result = usedNames.get(proto);
     if (result == null) {
-      if (parent != null) {
-        InternalState parentState = parent.getOrCreateInternalStateFor(proto);
-        result = parentState.createChild();
-      } else {
-        result = new InternalState(itemFactory, null, dictionary);
-      }
-      usedNames.put(proto, result);
+      result = usedNames.computeIfAbsent(proto,
+          k -> parent != null
+              ? parent.getOrCreateInternalStateFor(proto).createChild()
+              : new InternalState(itemFactory, null, dictionary));
     }
     return result;
   }
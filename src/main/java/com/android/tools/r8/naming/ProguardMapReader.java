@@ -15,9 +15,15 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -59,6 +65,13 @@ import java.util.function.Consumer;
  * range COLON signature COLON number ARROW name
  * <p>
  * and are currently only stored to be able to reproduce them later.
+ * <p>
+ * Mapping files of large applications are hundreds of megabytes. The {@code mapperFrom} methods
+ * parse and validate the whole mapping. For reading a mapping during compilation,
+ * {@link #indexFromFile} and {@link #mapperFromBuffer} only parse the class lines and record
+ * where the member mappings of each class are. The members of a class are then parsed when they
+ * are first accessed through its {@link ClassNaming}, and errors in them are reported at that
+ * point, with their position in the mapping.
  */
 public class ProguardMapReader implements AutoCloseable {
 
@@ -70,7 +83,7 @@ public class ProguardMapReader implements AutoCloseable {
     }
   }
 
-  private ProguardMapReader(BufferedReader reader) throws IOException {
+  private ProguardMapReader(BufferedReader reader) {
     this.reader = reader;
   }
 
@@ -85,6 +98,30 @@ public class ProguardMapReader implements AutoCloseable {
     return mapperFromInputStream(Files.newInputStream(path));
   }
 
+  /**
+   * Indexes the mapping in {@code path}, which is memory-mapped instead of being read onto the
+   * heap. The member mappings of a class are parsed on first access.
+   */
+  public static ClassNameMapper indexFromFile(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        // A single buffer cannot address the whole file, so fall back to parsing eagerly.
+        return mapperFromInputStream(Channels.newInputStream(channel));
+      }
+      return mapperFromBuffer(channel.map(MapMode.READ_ONLY, 0, size));
+    }
+  }
+
+  /**
+   * Indexes the mapping in the remaining bytes of {@code buffer}, which must not be modified
+   * while the returned mapper is in use. Only the class lines are parsed up front; the member
+   * mappings of a class are parsed from the buffer on first access.
+   */
+  public static ClassNameMapper mapperFromBuffer(ByteBuffer buffer) {
+    return new ProguardMapReader(null).index(buffer);
+  }
+
   public static ClassNameMapper mapperFromString(String contents) throws IOException {
     return mapperFromInputStream(
         new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)));
@@ -147,32 +184,111 @@ public class ProguardMapReader implements AutoCloseable {
 
   public ClassNameMapper parse() throws IOException {
     // Read the first line.
-    line = reader.readLine();
+    skipLine();
     Map<String, ClassNaming> classNames = parseClassMappings();
     return new ClassNameMapper(classNames);
   }
 
+  // Lines are split like BufferedReader.readLine splits them, and the member mappings of a class
+  // are the following lines that start with whitespace, like in parseMemberMappings. Empty lines
+  // between classes are skipped.
+  private ClassNameMapper index(ByteBuffer buffer) {
+    ImmutableMap.Builder<String, ClassNaming> builder = ImmutableMap.builder();
+    int position = buffer.position();
+    int limit = buffer.limit();
+    lineNo = 1;
+    while (position < limit) {
+      int end = endOfLine(buffer, position);
+      int classLineNo = lineNo;
+      line = StandardCharsets.UTF_8.decode(slice(buffer, position, end)).toString();
+      lineOffset = 0;
+      position = startOfNextLine(buffer, end);
+      lineNo++;
+      if (line.isEmpty()) {
+        continue;
+      }
+      ClassNaming currentClass = parseClassLine();
+      if (currentClass != null && line.length() != lineOffset) {
+        throw new ParseException("Expected end of line");
+      }
+      int membersStart = position;
+      while (position < limit && isMemberLine(buffer, position)) {
+        position = startOfNextLine(buffer, endOfLine(buffer, position));
+        lineNo++;
+      }
+      if (currentClass != null) {
+        if (position > membersStart) {
+          currentClass.setUnparsedMembers(slice(buffer, membersStart, position), classLineNo);
+        }
+        builder.put(currentClass.renamedName, currentClass);
+      }
+    }
+    return new ClassNameMapper(builder.build());
+  }
+
+  /**
+   * Parses the member mappings of {@code currentClass} from a section recorded by
+   * {@link #mapperFromBuffer}. The line number of the class line is used for error reporting.
+   */
+  static void parseMemberMappings(ClassNaming currentClass, ByteBuffer members, int classLineNo) {
+    String contents = StandardCharsets.UTF_8.decode(members.duplicate()).toString();
+    try (ProguardMapReader proguardReader =
+        new ProguardMapReader(new BufferedReader(new StringReader(contents)))) {
+      proguardReader.lineNo = classLineNo;
+      if (proguardReader.skipLine()) {
+        proguardReader.parseMemberMappings(currentClass);
+      }
+    } catch (IOException e) {
+      // Reading from a string does not fail.
+      throw new AssertionError(e);
+    }
+  }
+
+  private static int endOfLine(ByteBuffer buffer, int position) {
+    int limit = buffer.limit();
+    while (position < limit && !isLineTerminator(buffer.get(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  private static int startOfNextLine(ByteBuffer buffer, int end) {
+    if (end < buffer.limit() && buffer.get(end) == '\r') {
+      end++;
+    }
+    if (end < buffer.limit() && buffer.get(end) == '\n') {
+      end++;
+    }
+    return end;
+  }
+
+  private static boolean isLineTerminator(byte b) {
+    return b == '\n' || b == '\r';
+  }
+
+  private static boolean isMemberLine(ByteBuffer buffer, int position) {
+    byte b = buffer.get(position);
+    return !isLineTerminator(b) && Character.isWhitespace(b);
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+    ByteBuffer result = buffer.duplicate();
+    result.limit(end);
+    result.position(start);
+    return result.slice();
+  }
+
   // Parsing of entries
 
   private Map<String, ClassNaming> parseClassMappings() throws IOException {
     ImmutableMap.Builder<String, ClassNaming> builder = ImmutableMap.builder();
     while (hasLine()) {
-      String before = parseType(false);
-      skipWhitespace();
-      // Workaround for proguard map files that contain entries for package-info.java files.
-      if (!acceptArrow()) {
-        // If this was a package-info line, we parsed the "package" string.
-        if (!before.endsWith("package") || !acceptString("-info")) {
-          throw new ParseException("Expected arrow after class name " + before);
-        }
+      ClassNaming currentClass = parseClassLine();
+      if (currentClass == null) {
         skipLine();
         continue;
       }
-      skipWhitespace();
-      String after = parseType(false);
-      expect(':');
-      ClassNaming currentClass = new ClassNaming(after, before);
-      builder.put(after, currentClass);
+      builder.put(currentClass.renamedName, currentClass);
       if (nextLine()) {
         parseMemberMappings(currentClass);
       }
@@ -180,6 +296,27 @@ public class ProguardMapReader implements AutoCloseable {
     return builder.build();
   }
 
+  /**
+   * Parses a class line, returning null for the package-info entries that some mapping files
+   * contain.
+   */
+  private ClassNaming parseClassLine() {
+    String before = parseType(false);
+    skipWhitespace();
+    // Workaround for proguard map files that contain entries for package-info.java files.
+    if (!acceptArrow()) {
+      // If this was a package-info line, we parsed the "package" string.
+      if (!before.endsWith("package") || !acceptString("-info")) {
+        throw new ParseException("Expected arrow after class name " + before);
+      }
+      return null;
+    }
+    skipWhitespace();
+    String after = parseType(false);
+    expect(':');
+    return new ClassNaming(after, before);
+  }
+
   private void parseMemberMappings(ClassNaming currentClass) throws IOException {
     MemberNaming current = null;
     Range previousInlineRange = null;
@@ -415,8 +552,15 @@ public class ProguardMapReader implements AutoCloseable {
       this.msg = msg;
     }
 
-    public String toString() {
+    // The members of an indexed map are parsed when they are first looked up, which can be late
+    // in the compilation and on another thread, so the message carries the position in the map.
+    @Override
+    public String getMessage() {
       return "Parse error [" + lineNo + ":" + lineOffset + "] " + msg;
     }
+
+    public String toString() {
+      return getMessage();
+    }
   }
 }
@@ -320,7 +320,6 @@ public class RootSetBuilder {
         out.println(")");
       }
     }
-    out.close();
   }
 
   private boolean allRulesSatisfied(Collection<ProguardMemberRule> memberKeepRules,
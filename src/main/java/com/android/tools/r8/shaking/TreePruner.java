@@ -31,7 +31,7 @@ public class TreePruner {
     this.appInfo = appInfo;
     this.options = options;
     this.usagePrinter = options.proguardConfiguration.isPrintUsage()
-        ? new UsagePrinter() : UsagePrinter.DONT_PRINT;
+        ? new UsagePrinter(options.usageOutput) : UsagePrinter.DONT_PRINT;
   }
 
   public DexApplication run() throws IOException {
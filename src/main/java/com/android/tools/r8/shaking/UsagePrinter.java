@@ -6,6 +6,12 @@ package com.android.tools.r8.shaking;
 import com.android.tools.r8.graph.DexEncodedField;
 import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexProgramClass;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 
 class UsagePrinter {
@@ -13,16 +19,30 @@ class UsagePrinter {
 
   static final UsagePrinter DONT_PRINT = new NoOpUsagePrinter();
 
-  private final StringBuilder writer;
+  // The report printed so far, if it is not written to an output.
+  private final ByteArrayOutputStream bytes;
+  private final PrintWriter writer;
   private DexProgramClass enclosingClazz = null;
   private boolean clazzPrefixPrinted = false;
 
   UsagePrinter() {
-    writer = new StringBuilder();
+    this(null);
   }
 
-  byte[] toByteArray() {
-    return writer.toString().getBytes(StandardCharsets.UTF_8);
+  // Print to the output if present, otherwise keep the report in memory.
+  UsagePrinter(OutputStream output) {
+    bytes = output == null ? new ByteArrayOutputStream() : null;
+    writer = new PrintWriter(
+        new OutputStreamWriter(output == null ? bytes : output, StandardCharsets.UTF_8));
+  }
+
+  // Returns the report printed so far, or null if it was written to the output.
+  byte[] toByteArray() throws IOException {
+    writer.flush();
+    if (writer.checkError()) {
+      throw new IOException("Failed to write the usage report");
+    }
+    return bytes == null ? null : bytes.toByteArray();
   }
 
   void printUnusedClass(DexProgramClass clazz) {
@@ -86,6 +106,10 @@ class UsagePrinter {
   // Empty implementation to silently ignore printing dead code.
   private static class NoOpUsagePrinter extends UsagePrinter {
 
+    NoOpUsagePrinter() {
+      super(ByteStreams.nullOutputStream());
+    }
+
     @Override
     byte[] toByteArray() {
       return null;
@@ -370,7 +370,7 @@ public class ProtoLitePruner extends ProtoLiteBase {
    * For dead fields, we remove the field access and the call to makeImmutable.
    */
   private void rewriteMakeImmutableCase(BasicBlock switchCase, IRCode code) {
-    DominatorTree dom = new DominatorTree(code);
+    DominatorTree dom = code.getDominatorTree();
     boolean wasRewritten;
     do {
       wasRewritten = false;
@@ -438,7 +438,7 @@ public class ProtoLitePruner extends ProtoLiteBase {
    */
   private void rewriteIsInitializedCase(BasicBlock switchCase, DexType instanceType,
       IRCode code) {
-    DominatorTree dom = new DominatorTree(code);
+    DominatorTree dom = code.getDominatorTree();
     boolean wasRewritten;
     do {
       wasRewritten = false;
@@ -570,7 +570,7 @@ public class ProtoLitePruner extends ProtoLiteBase {
     // We are looking for a switch statement over the input tag. Just traverse all blocks until
     // we find it.
     List<BasicBlock> deadBlocks = new ArrayList<>();
-    DominatorTree dom = new DominatorTree(code);
+    DominatorTree dom = code.getDominatorTree();
     for (BasicBlock current : dom.dominatedBlocks(caseBlock)) {
       InstructionIterator it = current.iterator();
       Switch switchInstr;
@@ -612,7 +612,7 @@ public class ProtoLitePruner extends ProtoLiteBase {
           }
         }
         if (needsCleanup) {
-          DominatorTree updatedTree = new DominatorTree(code);
+          DominatorTree updatedTree = code.getDominatorTree();
           BasicBlock fallThrough = switchInstr.fallthroughBlock();
           List<BasicBlock> successors = ImmutableList.copyOf(current.getNormalSucessors());
           for (BasicBlock successor : successors) {
@@ -700,7 +700,7 @@ public class ProtoLitePruner extends ProtoLiteBase {
    * we currently do not remove. Inlining will likely remove the methods.
    */
   private void rewriteVisitCase(BasicBlock switchCase, IRCode code) {
-    DominatorTree dom = new DominatorTree(code);
+    DominatorTree dom = code.getDominatorTree();
     boolean wasRewritten;
     do {
       wasRewritten = false;
@@ -22,18 +22,15 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.CopyOption;
 import java.nio.file.Files;
-import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * Collection of program files needed for processing.
@@ -216,6 +213,13 @@ public class AndroidApp {
     return proguardMap == null ? null : proguardMap.getStream();
   }
 
+  /**
+   * Get the file of the proguard-map resource, or null if it does not exist or is not a file.
+   */
+  public Path getProguardMapFile() {
+    return proguardMap == null ? null : proguardMap.getFile();
+  }
+
   /**
    * True if the proguard-seeds resource exists.
    */
@@ -290,8 +294,17 @@ public class AndroidApp {
    * Write the dex program resources and proguard resource to @code{output}.
    */
   public void write(Path output, OutputMode outputMode) throws IOException {
+    write(output, outputMode, true, null);
+  }
+
+  /**
+   * Write the dex program resources and proguard resource to @code{output}, see
+   * {@link #writeToZip(Path, OutputMode, boolean, ExecutorService)} for archive outputs.
+   */
+  public void write(Path output, OutputMode outputMode, boolean compress,
+      ExecutorService executor) throws IOException {
     if (isArchive(output)) {
-      writeToZip(output, outputMode);
+      writeToZip(output, outputMode, compress, executor);
     } else {
       writeToDirectory(output, outputMode);
     }
@@ -364,28 +377,32 @@ public class AndroidApp {
    * Write the dex program resources to @code{archive} and the proguard resource as its sibling.
    */
   public void writeToZip(Path archive, OutputMode outputMode) throws IOException {
-    OpenOption[] options =
-        new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING};
-    try (Closer closer = Closer.create()) {
-      try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive, options))) {
-        List<Resource> dexProgramSources = getDexProgramResources();
-        for (int i = 0; i < dexProgramSources.size(); i++) {
-          ZipEntry zipEntry = new ZipEntry(outputMode.getOutputPath(dexProgramSources.get(i), i));
-          byte[] bytes =
-              ByteStreams.toByteArray(closer.register(dexProgramSources.get(i).getStream()));
-          zipEntry.setSize(bytes.length);
-          out.putNextEntry(zipEntry);
-          out.write(bytes);
-          out.closeEntry();
-        }
-      }
+    writeToZip(archive, outputMode, true, null);
+  }
+
+  /**
+   * Write the dex program resources to @code{archive}. The entries are streamed from the
+   * resources and deflated in parallel on @code{executor}, or on the calling thread if it is
+   * null. If @code{compress} is false they are stored uncompressed, which is cheaper for outputs
+   * that are only repacked later.
+   */
+  public void writeToZip(Path archive, OutputMode outputMode, boolean compress,
+      ExecutorService executor) throws IOException {
+    List<Resource> dexProgramSources = getDexProgramResources();
+    List<String> names = new ArrayList<>(dexProgramSources.size());
+    List<ZipUtils.EntryContent> contents = new ArrayList<>(dexProgramSources.size());
+    for (int i = 0; i < dexProgramSources.size(); i++) {
+      Resource resource = dexProgramSources.get(i);
+      names.add(outputMode.getOutputPath(resource, i));
+      contents.add(resource::getStream);
     }
+    ZipUtils.writeArchive(archive, names, contents, compress, executor);
   }
 
   public void writeProguardMap(OutputStream out) throws IOException {
     try (InputStream input = getProguardMap()) {
       assert input != null;
-      out.write(ByteStreams.toByteArray(input));
+      ByteStreams.copy(input, out);
     }
   }
 
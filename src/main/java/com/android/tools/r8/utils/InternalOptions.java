@@ -9,9 +9,11 @@ import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.errors.InvalidDebugInfoException;
 import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.ir.desugar.LambdaClassCache;
 import com.android.tools.r8.shaking.ProguardConfiguration;
 import com.android.tools.r8.shaking.ProguardConfigurationRule;
 import com.google.common.collect.ImmutableList;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.function.Function;
@@ -86,6 +88,8 @@ public class InternalOptions {
   public OffOrAuto interfaceMethodDesugaring = OffOrAuto.Off;
   // Defines try-with-resources rewriter behavior.
   public OffOrAuto tryWithResourcesDesugaring = OffOrAuto.Off;
+  // Lambda classes synthesized by earlier compilations, if they are to be reused.
+  public LambdaClassCache lambdaClassCache = null;
 
   // Application writing mode.
   public OutputMode outputMode = OutputMode.Indexed;
@@ -96,6 +100,10 @@ public class InternalOptions {
   public boolean printCfg = false;
   public String printCfgFile;
   public Path printMainDexListFile;
+  // Outputs for the -printusage and -printseeds reports. When set, the reports are written while
+  // they are produced, instead of being kept in memory and returned with the application.
+  public OutputStream usageOutput = null;
+  public OutputStream seedsOutput = null;
   public boolean ignoreMissingClasses = false;
   public boolean skipMinification = false;
   public boolean inlineAccessors = true;
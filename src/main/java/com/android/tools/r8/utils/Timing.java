@@ -10,6 +10,8 @@ package com.android.tools.r8.utils;
 //     try { ... } finally { t.end(); }
 // or alternatively:
 //     t.scope("My task", () -> { ... });
+// Counters and other information can be added to the current task by:
+//     t.info("My counter: " + count);
 // Finally a report is printed by:
 //     t.report();
 
@@ -69,6 +71,19 @@ public class Timing {
     }
   }
 
+  static class Info extends Node {
+
+    Info(String message) {
+      super(message);
+      end();
+    }
+
+    @Override
+    public String toString(Node top) {
+      return title;
+    }
+  }
+
 
   public void begin(String title) {
     Node n = new Node(title);
@@ -81,6 +96,10 @@ public class Timing {
     stack.pop();
   }
 
+  public void info(String message) {
+    stack.peek().sons.add(new Info(message));
+  }
+
   public void report() {
     Node top = stack.peek();
     top.end();
@@ -5,19 +5,39 @@ package com.android.tools.r8.utils;
 
 import com.android.tools.r8.errors.CompilationError;
 import com.google.common.io.ByteStreams;
+import com.google.common.io.Closer;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
+import org.apache.commons.compress.archivers.zip.ScatterZipOutputStream;
+import org.apache.commons.compress.archivers.zip.StreamCompressor;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntryRequest;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.parallel.FileBasedScatterGatherBackingStore;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
 
 public class ZipUtils {
 
+  // The size up to which the data of an entry is kept in memory while the archive is written.
+  private static final int IN_MEMORY_ENTRY_SIZE = 1 << 20;
+
   public interface OnEntryHandler {
     void onEntry(ZipEntry entry, ZipInputStream input) throws IOException;
   }
@@ -56,4 +76,164 @@ public class ZipUtils {
       });
     return outFiles;
   }
+
+  /** Opens the content of an archive entry. The stream is closed once it has been read. */
+  public interface EntryContent {
+    InputStream open() throws IOException;
+  }
+
+  /**
+   * Writes the given entries to a zip archive.
+   *
+   * <p>Each entry is streamed into its own scatter entry on {@code executor}, or on the calling
+   * thread if it is null. This computes its CRC and, if {@code compress} is set, deflates it.
+   * Otherwise it is stored uncompressed. The data of each scatter entry is kept in memory, unless
+   * it grows too large, in which case it is moved to a temporary file. The scatter entries are
+   * copied into the archive in the order of {@code names} once they are all done.
+   */
+  public static void writeArchive(Path archive, List<String> names, List<EntryContent> contents,
+      boolean compress, ExecutorService executor) throws IOException {
+    assert names.size() == contents.size();
+    if (executor == null) {
+      executor = MoreExecutors.newDirectExecutorService();
+    }
+    long time = System.currentTimeMillis();
+    try (Closer closer = Closer.create()) {
+      List<Future<ScatterZipOutputStream>> futures = new ArrayList<>(names.size());
+      for (int i = 0; i < names.size(); i++) {
+        ZipArchiveEntry entry = new ZipArchiveEntry(names.get(i));
+        entry.setMethod(compress ? ZipEntry.DEFLATED : ZipEntry.STORED);
+        entry.setTime(time);
+        EntryContent content = contents.get(i);
+        futures.add(executor.submit(() -> createScatterEntry(entry, content)));
+      }
+      List<ScatterZipOutputStream> entries = new ArrayList<>(futures.size());
+      try {
+        for (Future<ScatterZipOutputStream> future : futures) {
+          entries.add(closer.register(future.get()));
+        }
+      } catch (InterruptedException e) {
+        throw new RuntimeException("Interrupted while waiting for future.", e);
+      } catch (ExecutionException e) {
+        // Release the data of the remaining entries before rethrowing.
+        for (int i = entries.size() + 1; i < futures.size(); i++) {
+          closeWhenDone(futures.get(i));
+        }
+        throw unwrapExecutionException(e);
+      }
+      try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(archive.toFile())) {
+        for (ScatterZipOutputStream entry : entries) {
+          entry.writeTo(out);
+        }
+      }
+    }
+  }
+
+  private static ScatterZipOutputStream createScatterEntry(ZipArchiveEntry entry,
+      EntryContent content) throws IOException {
+    ScatterGatherBackingStore store = new SpillingBackingStore();
+    StreamCompressor compressor = StreamCompressor.create(Deflater.DEFAULT_COMPRESSION, store);
+    ScatterZipOutputStream scatter = new ScatterZipOutputStream(store, compressor);
+    try {
+      scatter.addArchiveEntry(ZipArchiveEntryRequest.createZipArchiveEntryRequest(entry, () -> {
+        try {
+          return content.open();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }));
+      return scatter;
+    } catch (IOException | RuntimeException | Error e) {
+      scatter.close();
+      throw e;
+    } finally {
+      compressor.close();
+    }
+  }
+
+  /**
+   * Keeps the data of a scatter entry in memory, and moves it to a temporary file once it exceeds
+   * {@link #IN_MEMORY_ENTRY_SIZE}.
+   */
+  private static class SpillingBackingStore implements ScatterGatherBackingStore {
+
+    private ExposedByteArrayOutputStream buffer = new ExposedByteArrayOutputStream();
+    private ScatterGatherBackingStore spill;
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+      return spill != null ? spill.getInputStream() : buffer.toInputStream();
+    }
+
+    @Override
+    public void writeOut(byte[] data, int offset, int length) throws IOException {
+      if (spill == null && buffer.size() + length > IN_MEMORY_ENTRY_SIZE) {
+        spill = new FileBasedScatterGatherBackingStore(File.createTempFile("r8-entry", ".zip"));
+        buffer.spillTo(spill);
+        buffer = null;
+      }
+      if (spill != null) {
+        spill.writeOut(data, offset, length);
+      } else {
+        buffer.write(data, offset, length);
+      }
+    }
+
+    @Override
+    public void closeForWriting() throws IOException {
+      if (spill != null) {
+        spill.closeForWriting();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      buffer = null;
+      if (spill != null) {
+        // Deletes the temporary file.
+        spill.close();
+      }
+    }
+  }
+
+  private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+    InputStream toInputStream() {
+      // The data is not written to anymore, so it can be read without copying it.
+      return new ByteArrayInputStream(buf, 0, count);
+    }
+
+    void spillTo(ScatterGatherBackingStore store) throws IOException {
+      store.writeOut(buf, 0, count);
+    }
+  }
+
+  private static void closeWhenDone(Future<ScatterZipOutputStream> future) throws IOException {
+    try {
+      future.get().close();
+    } catch (InterruptedException e) {
+      throw new RuntimeException("Interrupted while waiting for future.", e);
+    } catch (ExecutionException e) {
+      // The entry failed, and its task already released its data.
+    }
+  }
+
+  private static IOException unwrapExecutionException(ExecutionException executionException) {
+    Throwable cause = executionException.getCause();
+    // ForkJoinPool wraps checked exceptions in up to two levels of RuntimeExceptions, and the
+    // entry content wraps the exceptions of opening a stream in an UncheckedIOException.
+    while ((cause.getClass() == RuntimeException.class || cause instanceof UncheckedIOException)
+        && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    cause.addSuppressed(executionException);
+    if (cause instanceof IOException) {
+      return (IOException) cause;
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    throw new RuntimeException(executionException.getMessage(), cause);
+  }
 }
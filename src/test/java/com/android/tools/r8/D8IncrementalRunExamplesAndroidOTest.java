@@ -10,6 +10,7 @@ import static org.junit.Assert.assertEquals;
 import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.errors.InternalCompilerError;
 import com.android.tools.r8.errors.Unimplemented;
+import com.android.tools.r8.ir.desugar.LambdaClassCache;
 import com.android.tools.r8.utils.AndroidApp;
 import com.android.tools.r8.utils.OffOrAuto;
 import com.android.tools.r8.utils.OutputMode;
@@ -252,6 +253,37 @@ public abstract class D8IncrementalRunExamplesAndroidOTest
         readFromResource(mergedFromCompiledTogether));
   }
 
+  @Test
+  public void dexPerClassFileWithLambdaClassCache() throws Throwable {
+    String testName = "dexPerClassFileWithLambdaClassCache";
+    String testPackage = "lambdadesugaring";
+    String mainClass = "LambdaDesugaring";
+
+    Path inputJarFile = Paths.get(EXAMPLE_DIR, testPackage + JAR_EXTENSION);
+    Path cache = temp.newFolder("lambdaClassCache").toPath();
+
+    D8IncrementalTestRunner test = test(testName, testPackage, mainClass);
+    List<LambdaClassCache> caches = new ArrayList<>();
+    test.withBuilderTransformation(builder -> builder.setLambdaClassCache(cache));
+    test.withOptionConsumer(options -> caches.add(options.lambdaClassCache));
+
+    Map<String, Resource> firstRun = test.compileClassesTogether(inputJarFile, null);
+    String[] entries = cache.toFile().list();
+    Assert.assertNotNull(entries);
+    Assert.assertTrue(entries.length > 0);
+    Assert.assertEquals(0, caches.get(0).getReusedClassCount());
+
+    // The second compilation reads the lambda classes from the cache, and produces the same
+    // output as the first one.
+    Map<String, Resource> secondRun = test.compileClassesTogether(inputJarFile, null);
+    Assert.assertEquals(entries.length, caches.get(1).getReusedClassCount());
+    Assert.assertEquals(firstRun.keySet(), secondRun.keySet());
+    for (Map.Entry<String, Resource> entry : firstRun.entrySet()) {
+      Assert.assertArrayEquals(
+          readFromResource(entry.getValue()), readFromResource(secondRun.get(entry.getKey())));
+    }
+  }
+
   @Test
   public void dexPerClassFileOutputFiles() throws Throwable {
     String testName = "dexPerClassFileNoDesugaring";
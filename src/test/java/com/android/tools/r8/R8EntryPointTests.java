@@ -22,6 +22,7 @@ public class R8EntryPointTests extends TestBase {
 
   private static final String MAPPING = "mapping.txt";
   private static final String SEEDS = "seeds.txt";
+  private static final String USAGE = "usage.txt";
   private static final Path INPUT_JAR =
       Paths.get(ToolHelper.EXAMPLES_BUILD_DIR, "minification" + FileUtils.JAR_EXTENSION);
   private static final Path PROGUARD_FLAGS =
@@ -34,6 +35,7 @@ public class R8EntryPointTests extends TestBase {
     testFlags = temp.newFile("local.flags").toPath();
     FileUtils.writeTextFile(testFlags, ImmutableList.of(
         "-printseeds " + SEEDS,
+        "-printusage " + USAGE,
         "-printmapping " + MAPPING));
   }
 
@@ -44,6 +46,7 @@ public class R8EntryPointTests extends TestBase {
     Assert.assertTrue(Files.isRegularFile(out.resolve(FileUtils.DEFAULT_DEX_FILENAME)));
     Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(MAPPING)));
     Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(SEEDS)));
+    Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(USAGE)));
   }
 
   @Test
@@ -53,6 +56,7 @@ public class R8EntryPointTests extends TestBase {
     Assert.assertTrue(Files.isRegularFile(out));
     Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(MAPPING)));
     Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(SEEDS)));
+    Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(USAGE)));
   }
 
   @Test
@@ -67,6 +71,7 @@ public class R8EntryPointTests extends TestBase {
     Assert.assertTrue(Files.isRegularFile(out.resolve(FileUtils.DEFAULT_DEX_FILENAME)));
     Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(MAPPING)));
     Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(SEEDS)));
+    Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(USAGE)));
   }
 
   @Test
@@ -81,6 +86,7 @@ public class R8EntryPointTests extends TestBase {
     Assert.assertTrue(Files.isRegularFile(out));
     Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(MAPPING)));
     Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(SEEDS)));
+    Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(USAGE)));
   }
 
   @Test
@@ -96,6 +102,7 @@ public class R8EntryPointTests extends TestBase {
     Assert.assertTrue(Files.isRegularFile(out.resolve(FileUtils.DEFAULT_DEX_FILENAME)));
     Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(MAPPING)));
     Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(SEEDS)));
+    Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(USAGE)));
   }
 
   @Test
@@ -111,6 +118,7 @@ public class R8EntryPointTests extends TestBase {
     Assert.assertTrue(Files.isRegularFile(out));
     Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(MAPPING)));
     Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(SEEDS)));
+    Assert.assertTrue(Files.isRegularFile(testFlags.getParent().resolve(USAGE)));
   }
 
   private R8Command getCommand(Path out) throws CompilationException, IOException {
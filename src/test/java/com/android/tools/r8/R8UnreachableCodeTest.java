@@ -42,7 +42,7 @@ public class R8UnreachableCodeTest {
     assertEquals(4, clazz.directMethods().length);
     for (DexEncodedMethod method : clazz.directMethods()) {
       if (!method.method.name.toString().equals("main")) {
-        assertEquals(2, method.getCode().asDexCode().instructions.length);
+        assertEquals(2, method.getCode().asDexCode().getInstructions().length);
       }
     }
   }
@@ -6,11 +6,23 @@ package com.android.tools.r8.dex;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import com.android.tools.r8.graph.DexField;
 import com.android.tools.r8.graph.DexItem;
 import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexMethod;
 import com.android.tools.r8.graph.DexString;
 import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.IndexedDexItem;
+import com.android.tools.r8.graph.PresortedComparable;
+import com.android.tools.r8.naming.NamingLens;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Test;
 
 public class DexItemFactoryTest {
@@ -60,4 +72,83 @@ public class DexItemFactoryTest {
     assertEquals("long", factory.longType.getName());
     assertEquals("double", factory.doubleType.getName());
   }
+
+  private static class Items {
+    final List<DexString> strings = new ArrayList<>();
+    final List<DexType> types = new ArrayList<>();
+    final List<DexField> fields = new ArrayList<>();
+    final List<DexMethod> methods = new ArrayList<>();
+
+    void create(DexItemFactory factory, Random random, int count) {
+      for (int i = 0; i < count; i++) {
+        DexType holder =
+            factory.createType("Lp" + random.nextInt(50) + "/C" + types.size() + ";");
+        DexType type = types.isEmpty() ? factory.intType : types.get(random.nextInt(types.size()));
+        types.add(holder);
+        strings.add(holder.descriptor);
+        fields.add(factory.createField(holder, type, "f" + random.nextInt(10)));
+        methods.add(factory.createMethod(
+            holder, factory.createProto(type, holder), "m" + random.nextInt(10)));
+      }
+    }
+
+    void checkSorted() {
+      checkSorted(strings);
+      checkSorted(types);
+      checkSorted(fields);
+      checkSorted(methods);
+    }
+
+    private static <S extends IndexedDexItem & PresortedComparable<S>> void checkSorted(
+        List<S> items) {
+      List<S> sorted = new ArrayList<>(items);
+      sorted.sort(Comparator.comparingInt(IndexedDexItem::getSortedIndex));
+      for (int i = 1; i < sorted.size(); i++) {
+        assertTrue(sorted.get(i - 1).slowCompareTo(sorted.get(i)) < 0);
+      }
+    }
+  }
+
+  @Test
+  public void sortInParallel() throws Exception {
+    DexItemFactory factory = new DexItemFactory();
+    Items items = new Items();
+    items.create(factory, new Random(0), 50000);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      factory.sort(NamingLens.getIdentityLens(), executor);
+    } finally {
+      executor.shutdown();
+    }
+    items.checkSorted();
+  }
+
+  @Test
+  public void sortAgainAfterAddingItems() throws Exception {
+    DexItemFactory factory = new DexItemFactory();
+    Random random = new Random(0);
+    Items items = new Items();
+    items.create(factory, random, 1000);
+    factory.sort(NamingLens.getIdentityLens());
+    items.checkSorted();
+    factory.resetSortedIndices();
+    items.create(factory, random, 100);
+    factory.sort(NamingLens.getIdentityLens());
+    items.checkSorted();
+  }
+
+  @Test
+  public void sortAgainAfterClearingSortedItems() throws Exception {
+    DexItemFactory factory = new DexItemFactory();
+    Random random = new Random(0);
+    Items items = new Items();
+    items.create(factory, random, 1000);
+    factory.sort(NamingLens.getIdentityLens());
+    factory.clearSortedItems();
+    items.checkSorted();
+    factory.resetSortedIndices();
+    items.create(factory, random, 100);
+    factory.sort(NamingLens.getIdentityLens());
+    items.checkSorted();
+  }
 }
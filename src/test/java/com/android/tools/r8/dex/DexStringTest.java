@@ -75,6 +75,46 @@ public class DexStringTest {
     }
   }
 
+  @Test
+  public void testCompareBeyondSortKey() {
+    DexItemFactory factory = new DexItemFactory();
+
+    // Test strings in lexicographic order, that differ before, at and after the eighth byte.
+    DexString[] strings = {
+        factory.createString("abc\u0000defgh"),
+        factory.createString("abc\u0000defghi"),
+        factory.createString("abc\u0000e"),
+        factory.createString("abcd"),
+        factory.createString("abcd\u0000"),
+        factory.createString("abcde"),
+        factory.createString("abcdefg"),
+        factory.createString("abcdefg\u0000"),
+        factory.createString("abcdefg\u0000a"),
+        factory.createString("abcdefg\u0001"),
+        factory.createString("abcdefga"),
+        factory.createString("abcdefgh"),
+        factory.createString("abcdefgh\u0000"),
+        factory.createString("abcdefgh\u0000\u0000"),
+        factory.createString("abcdefgh\u0001"),
+        factory.createString("abcdefgha"),
+        factory.createString("abcdefghb"),
+        factory.createString("abcdefghb\u0080"),
+        factory.createString("abcdefghb\u0800"),
+        factory.createString("abcdefg\u0080"),
+        factory.createString("abcdefg\u0800"),
+        factory.createString("abcdefg\uffff"),
+        factory.createString("abcdefh"),
+    };
+
+    for (int i = 0; i < strings.length; i++) {
+      for (int j = 0; j < strings.length; j++) {
+        int expected = Integer.signum(i - j);
+        check(expected, strings[i], strings[j]);
+        check(-expected, strings[j], strings[i]);
+      }
+    }
+  }
+
   private void check(int expected, DexString s1, DexString s2) {
     assertEquals(s1.dump() + " " + s2.dump(),
         expected, Integer.signum(s1.toString().compareTo(s2.toString())));
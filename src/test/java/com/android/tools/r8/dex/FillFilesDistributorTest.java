@@ -0,0 +1,118 @@
+// Copyright (c) 2017, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.graph.AppInfoWithSubtyping;
+import com.android.tools.r8.graph.DexAccessFlags;
+import com.android.tools.r8.graph.DexAnnotationSet;
+import com.android.tools.r8.graph.DexAnnotationSetRefList;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexEncodedField;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DexString;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.DexTypeList;
+import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.DescriptorUtils;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.Timing;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import org.junit.Test;
+
+public class FillFilesDistributorTest {
+
+  private static final int MAX_METHOD_COUNT = Constants.U16BIT_MAX + 1;
+
+  /**
+   * Generates an application with the given number of packages, each with the given number of
+   * abstract classes that declare the given number of methods.
+   */
+  private static AndroidApp generateApplication(int packages, int classesPerPackage,
+      int methodsPerClass) throws IOException, ExecutionException {
+    InternalOptions options = new InternalOptions();
+    options.minApiLevel = Constants.ANDROID_L_API;
+    DexItemFactory factory = options.itemFactory;
+    DexApplication.Builder builder =
+        new DexApplication.Builder(factory, new Timing("FillFilesDistributorTest"));
+    for (int p = 0; p < packages; p++) {
+      for (int c = 0; c < classesPerPackage; c++) {
+        DexString desc = factory.createString(
+            DescriptorUtils.javaTypeToDescriptor("com.example.app.p" + p + ".Class" + c));
+        DexType type = factory.createType(desc);
+        DexEncodedMethod[] virtualMethods = new DexEncodedMethod[methodsPerClass];
+        for (int i = 0; i < methodsPerClass; i++) {
+          DexAccessFlags access = new DexAccessFlags();
+          access.setPublic();
+          access.setAbstract();
+          virtualMethods[i] = new DexEncodedMethod(
+              factory.createMethod(desc, factory.createString("method" + i),
+                  factory.voidDescriptor, DexString.EMPTY_ARRAY),
+              access,
+              DexAnnotationSet.empty(),
+              DexAnnotationSetRefList.empty(),
+              null);
+        }
+        DexAccessFlags classAccess = new DexAccessFlags();
+        classAccess.setPublic();
+        classAccess.setAbstract();
+        builder.addProgramClass(
+            new DexProgramClass(
+                type,
+                null,
+                classAccess,
+                factory.objectType,
+                DexTypeList.empty(),
+                null,
+                DexAnnotationSet.empty(),
+                DexEncodedField.EMPTY_ARRAY,
+                DexEncodedField.EMPTY_ARRAY,
+                DexEncodedMethod.EMPTY_ARRAY,
+                virtualMethods));
+      }
+    }
+    DexApplication application = builder.build();
+    ApplicationWriter writer = new ApplicationWriter(application,
+        new AppInfoWithSubtyping(application), options, null, null, NamingLens.getIdentityLens(),
+        null);
+    ExecutorService executor = ThreadUtils.getExecutorService(options);
+    try {
+      return writer.write(null, executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static int minimumNumberOfFiles(int packages, int classesPerPackage,
+      int methodsPerClass) {
+    int methods = packages * classesPerPackage * methodsPerClass;
+    return (methods + MAX_METHOD_COUNT - 1) / MAX_METHOD_COUNT;
+  }
+
+  private void checkFilesAreFilled(int packages, int classesPerPackage, int methodsPerClass)
+      throws IOException, ExecutionException {
+    AndroidApp app = generateApplication(packages, classesPerPackage, methodsPerClass);
+    assertEquals(minimumNumberOfFiles(packages, classesPerPackage, methodsPerClass),
+        app.getDexProgramResources().size());
+  }
+
+  @Test
+  public void packagesLargerThanHalfAFile() throws IOException, ExecutionException {
+    // Placing whole packages needs three files.
+    checkFilesAreFilled(3, 40, 1000);
+  }
+
+  @Test
+  public void classesLargerThanAQuarterOfAFile() throws IOException, ExecutionException {
+    // Placing whole packages needs six files.
+    checkFilesAreFilled(6, 2, 20000);
+  }
+}
@@ -32,7 +32,7 @@ public class JumboStringProcessing {
     factory.sort(NamingLens.getIdentityLens());
     Instruction[] instructions = buildInstructions(string, false);
     DexCode code = jumboStringProcess(factory, string, instructions);
-    Instruction[] rewrittenInstructions = code.instructions;
+    Instruction[] rewrittenInstructions = code.getInstructions();
     assert rewrittenInstructions[1] instanceof IfEq;
     IfEq condition = (IfEq) rewrittenInstructions[1];
     assert condition.getOffset() + condition.CCCC == rewrittenInstructions[3].getOffset();
@@ -49,7 +49,7 @@ public class JumboStringProcessing {
     factory.sort(NamingLens.getIdentityLens());
     Instruction[] instructions = buildInstructions(string, true);
     DexCode code = jumboStringProcess(factory, string, instructions);
-    Instruction[] rewrittenInstructions = code.instructions;
+    Instruction[] rewrittenInstructions = code.getInstructions();
     assert rewrittenInstructions[1] instanceof IfEqz;
     IfEqz condition = (IfEqz) rewrittenInstructions[1];
     assert condition.getOffset() + condition.BBBB == rewrittenInstructions[3].getOffset();
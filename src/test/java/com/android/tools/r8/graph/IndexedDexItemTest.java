@@ -0,0 +1,76 @@
+// Copyright (c) 2017, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class IndexedDexItemTest {
+
+  private static final int NUMBER_OF_FILES = 40;
+  private static final int NUMBER_OF_STRINGS = 2000;
+
+  @Test
+  public void assignToFiles() {
+    DexString string = new DexItemFactory().createString("string");
+    assertFalse(string.hasVirtualFileData(0));
+    assertFalse(string.hasVirtualFileData(100));
+    assertTrue(string.assignToVirtualFile(5));
+    assertFalse(string.assignToVirtualFile(5));
+    assertTrue(string.hasVirtualFileData(5));
+    assertFalse(string.hasVirtualFileData(4));
+    assertFalse(string.hasVirtualFileData(6));
+    assertTrue(string.assignToVirtualFile(0));
+    string.assignVirtualFileIndex(5, 42);
+    string.assignVirtualFileIndex(0, 0);
+    assertEquals(42, string.getVirtualFileIndex(5));
+    assertEquals(0, string.getVirtualFileIndex(0));
+    assertEquals(IndexedDexItem.UNASSOCIATED_VALUE, string.getVirtualFileIndex(1));
+  }
+
+  @Test
+  public void assignToFilesConcurrently() throws Exception {
+    DexItemFactory factory = new DexItemFactory();
+    List<DexString> strings = new ArrayList<>();
+    for (int i = 0; i < NUMBER_OF_STRINGS; i++) {
+      strings.add(factory.createString("s" + i));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      // Each file is populated by a single task, but all tasks add chunks to the same items.
+      List<Future<?>> futures = new ArrayList<>();
+      for (int file = NUMBER_OF_FILES - 1; file >= 0; file--) {
+        int fileId = file;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < strings.size(); i++) {
+            if (i % (fileId + 1) == 0) {
+              assertTrue(strings.get(i).assignToVirtualFile(fileId));
+              strings.get(i).assignVirtualFileIndex(fileId, i);
+            }
+          }
+        }));
+      }
+      ThreadUtils.awaitFutures(futures);
+    } finally {
+      executor.shutdown();
+    }
+    for (int file = 0; file < NUMBER_OF_FILES; file++) {
+      for (int i = 0; i < strings.size(); i++) {
+        assertEquals(
+            i % (file + 1) == 0 ? i : IndexedDexItem.UNASSOCIATED_VALUE,
+            strings.get(i).getVirtualFileIndex(file));
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+// Copyright (c) 2017, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.code.Instruction;
+import com.android.tools.r8.smali.SmaliTestBase;
+import com.android.tools.r8.utils.InternalOptions;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class ReferenceSummaryTest extends SmaliTestBase {
+
+  private static class LoggingUseRegistry extends UseRegistry {
+
+    private final List<String> uses = new ArrayList<>();
+
+    private boolean log(String kind, DexItem item) {
+      uses.add(kind + " " + item);
+      return true;
+    }
+
+    @Override
+    public boolean registerInvokeVirtual(DexMethod method) {
+      return log("invoke-virtual", method);
+    }
+
+    @Override
+    public boolean registerInvokeDirect(DexMethod method) {
+      return log("invoke-direct", method);
+    }
+
+    @Override
+    public boolean registerInvokeStatic(DexMethod method) {
+      return log("invoke-static", method);
+    }
+
+    @Override
+    public boolean registerInvokeInterface(DexMethod method) {
+      return log("invoke-interface", method);
+    }
+
+    @Override
+    public boolean registerInvokeSuper(DexMethod method) {
+      return log("invoke-super", method);
+    }
+
+    @Override
+    public boolean registerInstanceFieldWrite(DexField field) {
+      return log("iput", field);
+    }
+
+    @Override
+    public boolean registerInstanceFieldRead(DexField field) {
+      return log("iget", field);
+    }
+
+    @Override
+    public boolean registerNewInstance(DexType type) {
+      return log("new-instance", type);
+    }
+
+    @Override
+    public boolean registerStaticFieldRead(DexField field) {
+      return log("sget", field);
+    }
+
+    @Override
+    public boolean registerStaticFieldWrite(DexField field) {
+      return log("sput", field);
+    }
+
+    @Override
+    public boolean registerTypeReference(DexType type) {
+      return log("type", type);
+    }
+  }
+
+  @Test
+  public void replayMatchesInstructionTraversal() {
+    SmaliBuilder builder = new SmaliBuilder(DEFAULT_CLASS_NAME);
+    builder.addStaticField("counter", "I");
+    MethodSignature signature = builder.addStaticMethod(
+        "java.lang.Object",
+        DEFAULT_METHOD_NAME,
+        ImmutableList.of("java.lang.Object"),
+        2,
+        "    sget                v0, LTest;->counter:I",
+        "    add-int/lit8        v0, v0, 1",
+        "    sput                v0, LTest;->counter:I",
+        "    instance-of         v1, p0, Ljava/lang/String;",
+        "    if-eqz              v1, :not_string",
+        "    check-cast          p0, Ljava/lang/String;",
+        "    invoke-virtual      { p0 }, Ljava/lang/String;->length()I",
+        ":not_string",
+        "    new-instance        v0, Ljava/lang/StringBuilder;",
+        "    invoke-direct       { v0 }, Ljava/lang/StringBuilder;-><init>()V",
+        "    invoke-static       { p0 }, Ljava/lang/String;->valueOf(Ljava/lang/Object;)Ljava/lang/String;",
+        "    move-result-object  v1",
+        "    invoke-virtual      { v0, v1 }, Ljava/lang/StringBuilder;->append(Ljava/lang/String;)Ljava/lang/StringBuilder;",
+        "    invoke-virtual      { v0, v1 }, Ljava/lang/StringBuilder;->append(Ljava/lang/String;)Ljava/lang/StringBuilder;",
+        "    const-class         v1, Ljava/lang/String;",
+        "    return-object       v0"
+    );
+    DexApplication application = buildApplication(builder, new InternalOptions());
+    DexCode code = getMethod(application, signature).getCode().asDexCode();
+
+    LoggingUseRegistry expected = new LoggingUseRegistry();
+    for (Instruction instruction : code.getInstructions()) {
+      instruction.registerUse(expected);
+    }
+    assertEquals(11, expected.uses.size());
+
+    // The first traversal records the summary and the later ones replay it.
+    for (int i = 0; i < 2; i++) {
+      LoggingUseRegistry actual = new LoggingUseRegistry();
+      code.registerReachableDefinitions(actual);
+      assertEquals(expected.uses, actual.uses);
+    }
+  }
+}
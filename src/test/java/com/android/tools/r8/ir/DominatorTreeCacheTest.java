@@ -0,0 +1,68 @@
+// Copyright (c) 2017, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.ir.code.BasicBlock;
+import com.android.tools.r8.ir.code.DominatorTree;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.InstructionListIterator;
+import com.android.tools.r8.ir.code.ValueNumberGenerator;
+import com.android.tools.r8.smali.SmaliTestBase;
+import com.android.tools.r8.utils.InternalOptions;
+import com.google.common.collect.ImmutableList;
+import java.util.ListIterator;
+import org.junit.Test;
+
+public class DominatorTreeCacheTest extends SmaliTestBase {
+
+  private IRCode buildCode() {
+    SmaliBuilder builder = new SmaliBuilder(DEFAULT_CLASS_NAME);
+    MethodSignature signature = builder.addStaticMethod(
+        "int",
+        DEFAULT_METHOD_NAME,
+        ImmutableList.of("int", "int"),
+        1,
+        "    add-int             v0, p0, p1",
+        "    mul-int             v0, v0, p1",
+        "    return              v0"
+    );
+    InternalOptions options = new InternalOptions();
+    DexApplication application = buildApplication(builder, options);
+    DexEncodedMethod method = getMethod(application, signature);
+    return method.buildIR(new ValueNumberGenerator(), options);
+  }
+
+  private BasicBlock split(IRCode code, BasicBlock block) {
+    ListIterator<BasicBlock> blocks = code.listIterator(code.blocks.indexOf(block) + 1);
+    InstructionListIterator iterator = block.listIterator();
+    iterator.next();
+    return iterator.split(code, blocks);
+  }
+
+  @Test
+  public void reuseUntilControlFlowChanges() {
+    IRCode code = buildCode();
+    DominatorTree tree = code.getDominatorTree();
+    assertSame(tree, code.getDominatorTree());
+    assertEquals(1, code.getNumberOfDominatorTreesBuilt());
+    assertEquals(1, code.getNumberOfDominatorTreesReused());
+
+    BasicBlock entry = code.blocks.getFirst();
+    BasicBlock newBlock = split(code, entry);
+    DominatorTree newTree = code.getDominatorTree();
+    assertNotSame(tree, newTree);
+    assertEquals(2, code.getNumberOfDominatorTreesBuilt());
+    assertTrue(newTree.strictlyDominatedBy(newBlock, entry));
+    assertSame(newTree, code.getDominatorTree());
+    assertEquals(2, code.getNumberOfDominatorTreesReused());
+  }
+}
@@ -0,0 +1,131 @@
+// Copyright (c) 2017, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.ir.code.BasicBlock;
+import com.android.tools.r8.ir.code.DominatorTree;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.ValueNumberGenerator;
+import com.android.tools.r8.smali.SmaliTestBase;
+import com.android.tools.r8.utils.InternalOptions;
+import com.google.common.collect.ImmutableList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+public class DominatorTreeTest extends SmaliTestBase {
+
+  private IRCode buildCode() {
+    SmaliBuilder builder = new SmaliBuilder(DEFAULT_CLASS_NAME);
+    MethodSignature signature = builder.addStaticMethod(
+        "int",
+        DEFAULT_METHOD_NAME,
+        ImmutableList.of("int", "int"),
+        1,
+        "    if-eqz              p0, :else",
+        "    add-int/lit8        p1, p1, 1",
+        "    goto                :join",
+        ":else",
+        "    add-int/lit8        p1, p1, 2",
+        ":join",
+        "    if-lez              p1, :exit",
+        ":loop",
+        "    add-int/lit8        p1, p1, -1",
+        "    if-eqz              p1, :exit",
+        "    if-gtz              p0, :loop",
+        "    mul-int/lit8        p1, p1, 3",
+        "    goto                :loop",
+        ":exit",
+        "    return              p1"
+    );
+    InternalOptions options = new InternalOptions();
+    DexApplication application = buildApplication(builder, options);
+    DexEncodedMethod method = getMethod(application, signature);
+    return method.buildIR(new ValueNumberGenerator(), options);
+  }
+
+  private static Set<BasicBlock> dominatorsByWalk(DominatorTree tree, BasicBlock block) {
+    Set<BasicBlock> dominators = new HashSet<>();
+    dominators.add(block);
+    while (block.getNumber() != 0) {
+      block = tree.immediateDominator(block);
+      dominators.add(block);
+    }
+    return dominators;
+  }
+
+  @Test
+  public void dominanceMatchesImmediateDominators() {
+    IRCode code = buildCode();
+    DominatorTree tree = new DominatorTree(code);
+    BasicBlock[] blocks = tree.getSortedBlocks();
+    assertTrue(blocks.length > 5);
+    for (BasicBlock subject : blocks) {
+      Set<BasicBlock> dominators = dominatorsByWalk(tree, subject);
+      for (BasicBlock dominator : blocks) {
+        assertEquals(dominators.contains(dominator), tree.dominatedBy(subject, dominator));
+        assertEquals(
+            subject != dominator && dominators.contains(dominator),
+            tree.strictlyDominatedBy(subject, dominator));
+      }
+    }
+  }
+
+  @Test
+  public void preorderListsDominatedBlocksAfterTheirDominator() {
+    IRCode code = buildCode();
+    DominatorTree tree = new DominatorTree(code);
+    BasicBlock[] preorder = tree.getBlocksInPreorder();
+    assertEquals(tree.getSortedBlocks().length, preorder.length);
+    assertEquals(code.blocks.getFirst(), preorder[0]);
+    for (int i = 0; i < preorder.length; i++) {
+      // The blocks dominated by a block form a contiguous range starting at the block.
+      int end = i + 1;
+      while (end < preorder.length && tree.dominatedBy(preorder[end], preorder[i])) {
+        end++;
+      }
+      for (int j = 0; j < preorder.length; j++) {
+        assertEquals(i <= j && j < end, tree.dominatedBy(preorder[j], preorder[i]));
+      }
+    }
+  }
+
+  @Test
+  public void unlinkWithoutDominatorTreeRemovesTheSameBlocks() {
+    int numberOfBlocks = buildCode().blocks.size();
+    for (int i = 0; i < numberOfBlocks; i++) {
+      for (int j = 0; j < 2; j++) {
+        IRCode codeWithTree = buildCode();
+        IRCode codeWithoutTree = buildCode();
+        BasicBlock withTree = codeWithTree.blocks.get(i);
+        BasicBlock withoutTree = codeWithoutTree.blocks.get(i);
+        if (withTree.getSuccessors().size() <= j) {
+          continue;
+        }
+        List<BasicBlock> removedWithTree = withTree.unlink(
+            withTree.getSuccessors().get(j), new DominatorTree(codeWithTree));
+        List<BasicBlock> removedWithoutTree =
+            withoutTree.unlink(withoutTree.getSuccessors().get(j));
+        assertEquals(
+            positions(codeWithTree, removedWithTree),
+            positions(codeWithoutTree, removedWithoutTree));
+      }
+    }
+  }
+
+  private static Set<Integer> positions(IRCode code, List<BasicBlock> blocks) {
+    Set<Integer> positions = new HashSet<>();
+    for (BasicBlock block : blocks) {
+      positions.add(code.blocks.indexOf(block));
+    }
+    return positions;
+  }
+}
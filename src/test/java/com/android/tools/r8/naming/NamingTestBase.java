@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.function.BiConsumer;
 import org.junit.Before;
 
@@ -70,11 +71,12 @@ abstract class NamingTestBase {
       ClassAndMemberPublicizer.run(program);
     }
 
+    ExecutorService executorService = ThreadUtils.getExecutorService(options);
     RootSet rootSet = new RootSetBuilder(program, appInfo, configuration.getRules())
-        .run(ThreadUtils.getExecutorService(options));
+        .run(executorService);
     Enqueuer enqueuer = new Enqueuer(appInfo);
     appInfo = enqueuer.traceApplication(rootSet, timing);
-    return new Minifier(appInfo.withLiveness(), rootSet, options).run(timing);
+    return new Minifier(appInfo.withLiveness(), rootSet, options).run(timing, executorService);
   }
 
   static <T> Collection<Object[]> createTests(List<String> tests, Map<String, T> inspections) {
@@ -4,10 +4,18 @@
 package com.android.tools.r8.naming;
 
 import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.naming.MemberNaming.FieldSignature;
+import com.android.tools.r8.naming.MemberNaming.MethodSignature;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class ProguardMapReaderTest {
 
@@ -17,6 +25,19 @@ public class ProguardMapReaderTest {
   public static final String EXAMPLE_MAP_WITH_PACKAGE_INFO =
       "dagger.android.package-info -> dagger.android.package-info\n";
 
+  public static final String EXAMPLE_MAP_WITH_MEMBERS =
+      "foo.Bar -> a.a:\n"
+          + "    int field -> a\n"
+          + "    1:3:void method():10:12 -> b\n"
+          + "    4:4:void other(int,java.lang.String[]) -> b\n"
+          + "dagger.android.package-info -> dagger.android.package-info\r\n"
+          + "foo.Baz -> a.b:\r\n"
+          + "    void <init>() -> <init>\r\n"
+          + "foo.Empty -> a.c:";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void parseThrowingMap() throws IOException {
     ProguardMapReader.mapperFromFile(Paths.get(ROOT, EXAMPLE_MAP));
@@ -34,4 +55,77 @@ public class ProguardMapReaderTest {
     ClassNameMapper mapper = ProguardMapReader.mapperFromString(EXAMPLE_MAP_WITH_PACKAGE_INFO);
     Assert.assertTrue(mapper.getObfuscatedToOriginalMapping().isEmpty());
   }
+
+  @Test
+  public void indexedMapMatchesParsedMap() throws IOException {
+    ClassNameMapper parsed = ProguardMapReader.mapperFromString(EXAMPLE_MAP_WITH_MEMBERS);
+    ClassNameMapper indexed = ProguardMapReader.mapperFromBuffer(
+        ByteBuffer.wrap(EXAMPLE_MAP_WITH_MEMBERS.getBytes(StandardCharsets.UTF_8)));
+    Assert.assertEquals("foo.Bar", indexed.deobfuscateClassName("a.a"));
+    Assert.assertEquals("foo.Empty", indexed.deobfuscateClassName("a.c"));
+    // Writing must produce the same output before and after the members have been parsed.
+    Assert.assertEquals(parsed.toString(), indexed.toString());
+    ClassNaming naming = indexed.getClassNaming("a.a");
+    Assert.assertEquals("field", naming.lookup(new FieldSignature("a", "int")).signature.name);
+    Assert.assertEquals("method",
+        naming.lookup(new MethodSignature("b", "void", new String[0])).signature.name);
+    Assert.assertEquals(parsed.toString(), indexed.toString());
+    Assert.assertEquals(parsed, indexed);
+  }
+
+  @Test
+  public void indexedMapReportsLineOfMalformedMember() throws IOException {
+    String map = "foo.Bar -> a.a:\n"
+        + "    int field -> a\n"
+        + "foo.Baz -> a.b:\n"
+        + "    int field -> a\n"
+        + "    void method(int -> b\n";
+    String expected = "Parse error [5:";
+    try {
+      ProguardMapReader.mapperFromString(map);
+      Assert.fail("Expected a parse error");
+    } catch (RuntimeException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().startsWith(expected));
+    }
+    ClassNameMapper indexed = ProguardMapReader.mapperFromBuffer(
+        ByteBuffer.wrap(map.getBytes(StandardCharsets.UTF_8)));
+    Assert.assertEquals("foo.Baz", indexed.deobfuscateClassName("a.b"));
+    try {
+      indexed.getClassNaming("a.b").lookup(new FieldSignature("a", "int"));
+      Assert.fail("Expected a parse error");
+    } catch (RuntimeException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().startsWith(expected));
+    }
+  }
+
+  @Test
+  public void mapFileReportsLineOfMalformedMember() throws IOException {
+    String map = "foo.Bar -> a.a:\n"
+        + "    int field -> a\n"
+        + "foo.Baz -> a.b:\n"
+        + "    int field -> a\n"
+        + "    void method(int -> b\n";
+    Path mapFile = temp.newFile("proguard.map").toPath();
+    Files.write(mapFile, map.getBytes(StandardCharsets.UTF_8));
+    // Reading a map file parses all members, so the error is reported without any lookup.
+    try {
+      ProguardMapReader.mapperFromFile(mapFile);
+      Assert.fail("Expected a parse error");
+    } catch (RuntimeException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Parse error [5:"));
+    }
+    ClassNameMapper indexed = ProguardMapReader.indexFromFile(mapFile);
+    Assert.assertEquals("foo.Bar", indexed.deobfuscateClassName("a.a"));
+  }
+
+  @Test
+  public void indexedMapAcceptsCarriageReturnLineEndings() throws IOException {
+    String map = EXAMPLE_MAP_WITH_MEMBERS.replace("\r\n", "\n").replace('\n', '\r');
+    ClassNameMapper parsed = ProguardMapReader.mapperFromString(map);
+    ClassNameMapper indexed = ProguardMapReader.mapperFromBuffer(
+        ByteBuffer.wrap(map.getBytes(StandardCharsets.UTF_8)));
+    Assert.assertEquals("foo.Baz", indexed.deobfuscateClassName("a.b"));
+    Assert.assertEquals(parsed.toString(), indexed.toString());
+    Assert.assertEquals(parsed, indexed);
+  }
 }
@@ -119,7 +119,7 @@ public class StaticValuesTest extends SmaliTestBase {
     DexInspector inspector = new DexInspector(processedApplication);
     MethodSubject clinit = inspector.clazz("Test").clinit();
     // Nothing changed in the class initializer.
-    assertEquals(5, clinit.getMethod().getCode().asDexCode().instructions.length);
+    assertEquals(5, clinit.getMethod().getCode().asDexCode().getInstructions().length);
 
     String result = runArt(processedApplication, options);
 
@@ -349,7 +349,7 @@ public class StaticValuesTest extends SmaliTestBase {
     DexInspector inspector = new DexInspector(processedApplication);
     MethodSubject clinit = inspector.clazz("Test").clinit();
     // Nothing changed in the class initializer.
-    assertEquals(3, clinit.getMethod().getCode().asDexCode().instructions.length);
+    assertEquals(3, clinit.getMethod().getCode().asDexCode().getInstructions().length);
 
     String result = runArt(processedApplication, options);
 
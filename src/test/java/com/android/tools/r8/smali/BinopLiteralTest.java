@@ -62,10 +62,10 @@ public class BinopLiteralTest extends SmaliTestBase {
             "    return p0"
         );
         DexCode code = method.getCode().asDexCode();
-        assertEquals(2, code.instructions.length);
-        assertTrue(code.instructions[0] instanceof Format22b);
-        assertEquals(lit8Value, ((Format22b) code.instructions[0]).CC);
-        assertTrue(code.instructions[1] instanceof Return);
+        assertEquals(2, code.getInstructions().length);
+        assertTrue(code.getInstructions()[0] instanceof Format22b);
+        assertEquals(lit8Value, ((Format22b) code.getInstructions()[0]).CC);
+        assertTrue(code.getInstructions()[1] instanceof Return);
       }
     }
   }
@@ -87,10 +87,10 @@ public class BinopLiteralTest extends SmaliTestBase {
             "    return p0"
         );
         DexCode code = method.getCode().asDexCode();
-        assertEquals(2, code.instructions.length);
-        assertTrue(code.instructions[0] instanceof Format22s);
-        assertEquals(lit16Value, ((Format22s) code.instructions[0]).CCCC);
-        assertTrue(code.instructions[1] instanceof Return);
+        assertEquals(2, code.getInstructions().length);
+        assertTrue(code.getInstructions()[0] instanceof Format22s);
+        assertEquals(lit16Value, ((Format22s) code.getInstructions()[0]).CCCC);
+        assertTrue(code.getInstructions()[1] instanceof Return);
       }
     }
   }
@@ -110,10 +110,10 @@ public class BinopLiteralTest extends SmaliTestBase {
             "    return p0"
         );
         DexCode code = method.getCode().asDexCode();
-        assertEquals(3, code.instructions.length);
-        assertTrue(code.instructions[0] instanceof Const16);
-        assertEquals(lit16Value, ((Const16) code.instructions[0]).BBBB);
-        assertTrue(code.instructions[2] instanceof Return);
+        assertEquals(3, code.getInstructions().length);
+        assertTrue(code.getInstructions()[0] instanceof Const16);
+        assertEquals(lit16Value, ((Const16) code.getInstructions()[0]).BBBB);
+        assertTrue(code.getInstructions()[2] instanceof Return);
       }
     }
   }
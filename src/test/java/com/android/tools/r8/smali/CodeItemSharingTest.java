@@ -0,0 +1,50 @@
+// Copyright (c) 2017, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.smali;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexCode;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.DexInspector;
+import com.android.tools.r8.utils.InternalOptions;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+public class CodeItemSharingTest extends SmaliTestBase {
+
+  private DexCode codeOf(DexInspector inspector, String name) {
+    return inspector.clazz(DEFAULT_CLASS_NAME)
+        .method("I", name, ImmutableList.of("I"))
+        .getMethod().getCode().asDexCode();
+  }
+
+  @Test
+  public void identicalMethodsShareCodeItem() throws Exception {
+    SmaliBuilder builder = new SmaliBuilder(DEFAULT_CLASS_NAME);
+    String[] body = {
+        "    add-int/lit8        v0, p0, 42",
+        "    mul-int/2addr       v0, p0",
+        "    return              v0"
+    };
+    builder.addStaticMethod("I", "first", ImmutableList.of("I"), 1, body);
+    builder.addStaticMethod("I", "second", ImmutableList.of("I"), 1, body);
+    builder.addStaticMethod("I", "different", ImmutableList.of("I"), 1,
+        "    add-int/lit8        v0, p0, 43",
+        "    mul-int/2addr       v0, p0",
+        "    return              v0");
+
+    InternalOptions options = new InternalOptions();
+    DexApplication application = processApplication(buildApplication(builder, options), options);
+    AndroidApp app = writeDex(application, options);
+
+    // The reader shares the code object of methods that refer to the same code item.
+    DexInspector inspector = new DexInspector(app);
+    assertSame(codeOf(inspector, "first"), codeOf(inspector, "second"));
+    assertNotSame(codeOf(inspector, "first"), codeOf(inspector, "different"));
+  }
+}
@@ -59,16 +59,16 @@ public class ConstantFoldingTest extends SmaliTestBase {
         values.size() * factor,
         source.toString());
     DexCode code = method.getCode().asDexCode();
-    assertEquals(2, code.instructions.length);
+    assertEquals(2, code.getInstructions().length);
     if (wide) {
-      assertTrue(code.instructions[0] instanceof WideConstant);
-      assertEquals(result.longValue(), ((WideConstant) code.instructions[0]).decodedValue());
-      assertTrue(code.instructions[1] instanceof ReturnWide);
+      assertTrue(code.getInstructions()[0] instanceof WideConstant);
+      assertEquals(result.longValue(), ((WideConstant) code.getInstructions()[0]).decodedValue());
+      assertTrue(code.getInstructions()[1] instanceof ReturnWide);
     } else {
-      assertTrue(code.instructions[0] instanceof SingleConstant);
+      assertTrue(code.getInstructions()[0] instanceof SingleConstant);
       assertEquals(
-          result.longValue(), (long) ((SingleConstant) code.instructions[0]).decodedValue());
-      assertTrue(code.instructions[1] instanceof Return);
+          result.longValue(), (long) ((SingleConstant) code.getInstructions()[0]).decodedValue());
+      assertTrue(code.getInstructions()[1] instanceof Return);
     }
   }
 
@@ -151,11 +151,11 @@ public class ConstantFoldingTest extends SmaliTestBase {
     );
     DexCode code = method.getCode().asDexCode();
     // Division by zero is not folded, but div-int/lit8 is used.
-    assertEquals(3, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof Const4);
-    assertTrue(code.instructions[1] instanceof DivIntLit8);
-    assertEquals(0, ((DivIntLit8) code.instructions[1]).CC);
-    assertTrue(code.instructions[2] instanceof Return);
+    assertEquals(3, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof Const4);
+    assertTrue(code.getInstructions()[1] instanceof DivIntLit8);
+    assertEquals(0, ((DivIntLit8) code.getInstructions()[1]).CC);
+    assertTrue(code.getInstructions()[2] instanceof Return);
   }
 
   @Test
@@ -170,11 +170,11 @@ public class ConstantFoldingTest extends SmaliTestBase {
     );
     DexCode code = method.getCode().asDexCode();
     // Division by zero is not folded, but rem-int/lit8 is used.
-    assertEquals(3, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof Const4);
-    assertTrue(code.instructions[1] instanceof RemIntLit8);
-    assertEquals(0, ((RemIntLit8) code.instructions[1]).CC);
-    assertTrue(code.instructions[2] instanceof Return);
+    assertEquals(3, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof Const4);
+    assertTrue(code.getInstructions()[1] instanceof RemIntLit8);
+    assertEquals(0, ((RemIntLit8) code.getInstructions()[1]).CC);
+    assertTrue(code.getInstructions()[2] instanceof Return);
   }
 
   public void generateUnopTest(String type, String op, Long value, Long result) {
@@ -198,16 +198,16 @@ public class ConstantFoldingTest extends SmaliTestBase {
         wide ? 2 : 1,
         source.toString());
     DexCode code = method.getCode().asDexCode();
-    assertEquals(2, code.instructions.length);
+    assertEquals(2, code.getInstructions().length);
     if (wide) {
-      assertTrue(code.instructions[0] instanceof WideConstant);
-      assertEquals(result.longValue(), ((WideConstant) code.instructions[0]).decodedValue());
-      assertTrue(code.instructions[1] instanceof ReturnWide);
+      assertTrue(code.getInstructions()[0] instanceof WideConstant);
+      assertEquals(result.longValue(), ((WideConstant) code.getInstructions()[0]).decodedValue());
+      assertTrue(code.getInstructions()[1] instanceof ReturnWide);
     } else {
-      assertTrue(code.instructions[0] instanceof SingleConstant);
+      assertTrue(code.getInstructions()[0] instanceof SingleConstant);
       assertEquals(
-          result.longValue(), (long) ((SingleConstant) code.instructions[0]).decodedValue());
-      assertTrue(code.instructions[1] instanceof Return);
+          result.longValue(), (long) ((SingleConstant) code.getInstructions()[0]).decodedValue());
+      assertTrue(code.getInstructions()[1] instanceof Return);
     }
   }
 
@@ -273,9 +273,9 @@ public class ConstantFoldingTest extends SmaliTestBase {
     );
     DexCode code = method.getCode().asDexCode();
     // Test that this just returns a constant.
-    assertEquals(2, code.instructions.length);
-    assertConstValue(expected, code.instructions[0]);
-    assertTrue(code.instructions[1] instanceof Return);
+    assertEquals(2, code.getInstructions().length);
+    assertConstValue(expected, code.getInstructions()[0]);
+    assertTrue(code.getInstructions()[1] instanceof Return);
   }
 
   @Test
@@ -337,9 +337,9 @@ public class ConstantFoldingTest extends SmaliTestBase {
     );
     DexCode code = method.getCode().asDexCode();
     // Test that this just returns a constant.
-    assertEquals(2, code.instructions.length);
-    assertConstValue(expected, code.instructions[0]);
-    assertTrue(code.instructions[1] instanceof Return);
+    assertEquals(2, code.getInstructions().length);
+    assertConstValue(expected, code.getInstructions()[0]);
+    assertTrue(code.getInstructions()[1] instanceof Return);
   }
 
   @Test
@@ -402,9 +402,9 @@ public class ConstantFoldingTest extends SmaliTestBase {
     );
     DexCode code = method.getCode().asDexCode();
     // Test that this just returns a constant.
-    assertEquals(2, code.instructions.length);
-    assertConstValue(expected, code.instructions[0]);
-    assertTrue(code.instructions[1] instanceof ReturnWide);
+    assertEquals(2, code.getInstructions().length);
+    assertConstValue(expected, code.getInstructions()[0]);
+    assertTrue(code.getInstructions()[1] instanceof ReturnWide);
   }
 
   @Test
@@ -438,9 +438,9 @@ public class ConstantFoldingTest extends SmaliTestBase {
           "    return v0"
       );
       DexCode code = method.getCode().asDexCode();
-      assertEquals(2, code.instructions.length);
-      assertConstValue(~value, code.instructions[0]);
-      assertTrue(code.instructions[1] instanceof Return);
+      assertEquals(2, code.getInstructions().length);
+      assertConstValue(~value, code.getInstructions()[0]);
+      assertTrue(code.getInstructions()[1] instanceof Return);
     }
   }
 
@@ -464,9 +464,9 @@ public class ConstantFoldingTest extends SmaliTestBase {
           "    return-wide v0"
       );
       DexCode code = method.getCode().asDexCode();
-      assertEquals(2, code.instructions.length);
-      assertConstValue(~value, code.instructions[0]);
-      assertTrue(code.instructions[1] instanceof ReturnWide);
+      assertEquals(2, code.getInstructions().length);
+      assertConstValue(~value, code.getInstructions()[0]);
+      assertTrue(code.getInstructions()[1] instanceof ReturnWide);
     }
   }
 
@@ -482,9 +482,9 @@ public class ConstantFoldingTest extends SmaliTestBase {
           "    return v0"
       );
       DexCode code = method.getCode().asDexCode();
-      assertEquals(2, code.instructions.length);
-      assertConstValue(-value, code.instructions[0]);
-      assertTrue(code.instructions[1] instanceof Return);
+      assertEquals(2, code.getInstructions().length);
+      assertConstValue(-value, code.getInstructions()[0]);
+      assertTrue(code.getInstructions()[1] instanceof Return);
     }
   }
 
@@ -508,10 +508,10 @@ public class ConstantFoldingTest extends SmaliTestBase {
           "    return-wide v0"
       );
       DexCode code = method.getCode().asDexCode();
-      assertEquals(2, code.instructions.length);
+      assertEquals(2, code.getInstructions().length);
       long expected = -value;
-      assertConstValue(-value, code.instructions[0]);
-      assertTrue(code.instructions[1] instanceof ReturnWide);
+      assertConstValue(-value, code.getInstructions()[0]);
+      assertTrue(code.getInstructions()[1] instanceof ReturnWide);
     }
   }
 
@@ -604,10 +604,10 @@ public class ConstantFoldingTest extends SmaliTestBase {
               "  goto :label_1"
           );
           DexCode code = method.getCode().asDexCode();
-          assertEquals(2, code.instructions.length);
+          assertEquals(2, code.getInstructions().length);
           int expected = test.results[type.ordinal()] ? 1 : 0;
-          assertConstValue(expected, code.instructions[0]);
-          assertTrue(code.instructions[1] instanceof Return);
+          assertConstValue(expected, code.getInstructions()[0]);
+          assertTrue(code.getInstructions()[1] instanceof Return);
         }
       }
     }
@@ -701,10 +701,10 @@ public class ConstantFoldingTest extends SmaliTestBase {
               "  goto :label_1"
           );
           DexCode code = method.getCode().asDexCode();
-          assertEquals(2, code.instructions.length);
+          assertEquals(2, code.getInstructions().length);
           int expected = test.results[type.ordinal()] ? 1 : 0;
-          assertConstValue(expected, code.instructions[0]);
-          assertTrue(code.instructions[1] instanceof Return);
+          assertConstValue(expected, code.getInstructions()[0]);
+          assertTrue(code.getInstructions()[1] instanceof Return);
         }
       }
     }
@@ -731,9 +731,9 @@ public class ConstantFoldingTest extends SmaliTestBase {
           "    return v0"
       );
       DexCode code = method.getCode().asDexCode();
-      assertEquals(2, code.instructions.length);
-      assertConstValue(Long.compare(values[0], values[1]), code.instructions[0]);
-      assertTrue(code.instructions[1] instanceof Return);
+      assertEquals(2, code.getInstructions().length);
+      assertConstValue(Long.compare(values[0], values[1]), code.getInstructions()[0]);
+      assertTrue(code.getInstructions()[1] instanceof Return);
     }
   }
 }
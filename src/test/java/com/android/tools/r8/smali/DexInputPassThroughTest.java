@@ -0,0 +1,141 @@
+// Copyright (c) 2017, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.smali;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.code.EncodedInstructions;
+import com.android.tools.r8.code.Instruction;
+import com.android.tools.r8.code.InstructionFactory;
+import com.android.tools.r8.graph.DexCode;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.DexInspector;
+import com.android.tools.r8.utils.DexInspector.MethodSubject;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+/**
+ * Tests that code from dex inputs, which D8 writes from its encoded form, refers to the same
+ * items after merging although their indices change.
+ */
+public class DexInputPassThroughTest extends SmaliTestBase {
+
+  private static final String FIRST_CLASS = "First";
+  private static final String SECOND_CLASS = "Second";
+
+  private SmaliBuilder buildFirst() {
+    SmaliBuilder builder = new SmaliBuilder(FIRST_CLASS);
+    builder.addStaticField("field", "I");
+    builder.addStaticMethod("I", DEFAULT_METHOD_NAME, ImmutableList.of("I"), 2,
+        "    const-string        v0, \"first\"",
+        "    const-string/jumbo  v0, \"jumbo\"",
+        "    new-instance        v0, Ljava/lang/Object;",
+        "    invoke-direct       { v0 }, Ljava/lang/Object;-><init>()V",
+        "    check-cast          v0, Ljava/lang/Object;",
+        "    sget                v0, LFirst;->field:I",
+        "    packed-switch       p0, :packed_switch_data",
+        "    const/4             v1, 0",
+        "    new-array           v1, v1, [I",
+        "    fill-array-data     v1, :array_data",
+        "    return              v0",
+        "  :packed_switch_data",
+        "    .packed-switch 0x0",
+        "      :return_zero",
+        "      :return_zero",
+        "    .end packed-switch",
+        "  :array_data",
+        "    .array-data 4",
+        "      1 2 3",
+        "    .end array-data",
+        "  :return_zero",
+        "    const/4             v0, 0",
+        "    return              v0");
+    return builder;
+  }
+
+  private SmaliBuilder buildSecond() {
+    SmaliBuilder builder = new SmaliBuilder(SECOND_CLASS);
+    builder.addStaticMethod("I", DEFAULT_METHOD_NAME, ImmutableList.of("I"), 6,
+        "    const-string        v0, \"a\"",
+        "    const-string        v1, \"b\"",
+        "    const-class         v2, LSecond;",
+        "    instance-of         v3, v2, Ljava/lang/Class;",
+        "    const/4             v3, 1",
+        "    invoke-static/range { v3 .. v3 }, LFirst;->method(I)I",
+        "    sparse-switch       p0, :sparse_switch_data",
+        "    return              v3",
+        "  :sparse_switch_data",
+        "    .sparse-switch",
+        "      0x1 -> :return",
+        "      0x10 -> :return",
+        "    .end sparse-switch",
+        "  :return",
+        "    return              p0");
+    return builder;
+  }
+
+  private void assertSameCode(DexInspector input, DexInspector merged, String className) {
+    MethodSubject inputMethod =
+        input.clazz(className).method("I", DEFAULT_METHOD_NAME, ImmutableList.of("I"));
+    MethodSubject mergedMethod =
+        merged.clazz(className).method("I", DEFAULT_METHOD_NAME, ImmutableList.of("I"));
+    assertTrue(inputMethod.isPresent());
+    assertTrue(mergedMethod.isPresent());
+    assertEquals(
+        inputMethod.getMethod().getCode().asDexCode().toString(),
+        mergedMethod.getMethod().getCode().asDexCode().toString());
+  }
+
+  @Test
+  public void mergedCodeRefersToSameItems() throws Exception {
+    byte[] first = buildFirst().compile();
+    byte[] second = buildSecond().compile();
+    AndroidApp merged = ToolHelper.runD8(
+        AndroidApp.builder().addDexProgramData(first).addDexProgramData(second).build());
+    DexInspector mergedInspector = new DexInspector(merged);
+    assertSameCode(new DexInspector(AndroidApp.fromDexProgramData(first)), mergedInspector,
+        FIRST_CLASS);
+    assertSameCode(new DexInspector(AndroidApp.fromDexProgramData(second)), mergedInspector,
+        SECOND_CLASS);
+  }
+
+  @Test
+  public void highestSortingStringOfEncodedCode() throws Exception {
+    DexInspector inspector =
+        new DexInspector(AndroidApp.fromDexProgramData(buildFirst().compile()));
+    DexCode code = inspector.clazz(FIRST_CLASS)
+        .method("I", DEFAULT_METHOD_NAME, ImmutableList.of("I"))
+        .getMethod().getCode().asDexCode();
+    assertNotNull(code.getEncodedInstructions());
+    assertEquals("jumbo", code.getHighestSortingString().toString());
+    // Decoding the instructions finds the same string.
+    code.getInstructions();
+    assertNull(code.getEncodedInstructions());
+    assertEquals("jumbo", code.getHighestSortingString().toString());
+  }
+
+  @Test
+  public void encodedBuiltCodeDecodesToSameInstructions() throws Exception {
+    for (SmaliBuilder builder : ImmutableList.of(buildFirst(), buildSecond())) {
+      DexInspector inspector = new DexInspector(AndroidApp.fromDexProgramData(builder.compile()));
+      DexCode code = inspector.clazz(builder.getCurrentClassName())
+          .method("I", DEFAULT_METHOD_NAME, ImmutableList.of("I"))
+          .getMethod().getCode().asDexCode();
+      Instruction[] instructions = code.getInstructions();
+      EncodedInstructions encoded = EncodedInstructions.encode(instructions);
+      assertTrue(encoded.hasCodeLocalItems());
+      assertEquals(instructions.length, encoded.instructionCount());
+      assertEquals(code.codeSizeInBytes(), encoded.size());
+      assertArrayEquals(instructions, encoded.decode(new InstructionFactory()));
+      assertTrue(encoded.contentEquals(EncodedInstructions.encode(instructions)));
+      assertEquals(code.getHighestSortingString(), encoded.getHighestSortingString());
+    }
+  }
+}
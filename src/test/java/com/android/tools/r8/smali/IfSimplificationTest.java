@@ -54,10 +54,10 @@ public class IfSimplificationTest extends SmaliTestBase {
         "  const v0, 1",
         "  goto :label_1");
     DexCode code = method.getCode().asDexCode();
-    assertEquals(2, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof Const4);
-    assertEquals(0, ((Const4) code.instructions[0]).B);
-    assertTrue(code.instructions[1] instanceof Return);
+    assertEquals(2, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof Const4);
+    assertEquals(0, ((Const4) code.getInstructions()[0]).B);
+    assertTrue(code.getInstructions()[1] instanceof Return);
   }
 
   @Test
@@ -74,10 +74,10 @@ public class IfSimplificationTest extends SmaliTestBase {
         "  const v0, 1",
         "  goto :label_1");
     DexCode code = method.getCode().asDexCode();
-    assertEquals(2, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof Const4);
-    assertEquals(2, ((Const4) code.instructions[0]).B);
-    assertTrue(code.instructions[1] instanceof Return);
+    assertEquals(2, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof Const4);
+    assertEquals(2, ((Const4) code.getInstructions()[0]).B);
+    assertTrue(code.getInstructions()[1] instanceof Return);
   }
 
   @Test
@@ -98,10 +98,10 @@ public class IfSimplificationTest extends SmaliTestBase {
         "  const v0, 2",
         "  goto :label_1");
     DexCode code = method.getCode().asDexCode();
-    assertEquals(2, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof Const4);
-    assertEquals(0, ((Const4) code.instructions[0]).B);
-    assertTrue(code.instructions[1] instanceof Return);
+    assertEquals(2, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof Const4);
+    assertEquals(0, ((Const4) code.getInstructions()[0]).B);
+    assertTrue(code.getInstructions()[1] instanceof Return);
   }
 
   @Test
@@ -122,10 +122,10 @@ public class IfSimplificationTest extends SmaliTestBase {
         "  const p0, 0",
         "  goto :label_2");
     DexCode code = method.getCode().asDexCode();
-    assertEquals(2, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof Const4);
-    assertEquals(0, ((Const4) code.instructions[0]).B);
-    assertTrue(code.instructions[1] instanceof Return);
+    assertEquals(2, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof Const4);
+    assertEquals(0, ((Const4) code.getInstructions()[0]).B);
+    assertTrue(code.getInstructions()[1] instanceof Return);
   }
 
   @Test
@@ -153,10 +153,10 @@ public class IfSimplificationTest extends SmaliTestBase {
         "  const p0, 0",
         "  goto :label_2");
     DexCode code = method.getCode().asDexCode();
-    assertEquals(2, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof Const4);
-    assertEquals(0, ((Const4) code.instructions[0]).B);
-    assertTrue(code.instructions[1] instanceof Return);
+    assertEquals(2, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof Const4);
+    assertEquals(0, ((Const4) code.getInstructions()[0]).B);
+    assertTrue(code.getInstructions()[1] instanceof Return);
   }
 
   @Test
@@ -180,8 +180,8 @@ public class IfSimplificationTest extends SmaliTestBase {
         ":return",
         "  return v0");
     DexCode code = method.getCode().asDexCode();
-    assertEquals(10, code.instructions.length);
-    assertTrue(code.instructions[9] instanceof Return);
+    assertEquals(10, code.getInstructions().length);
+    assertTrue(code.getInstructions()[9] instanceof Return);
   }
 
   @Test
@@ -198,10 +198,10 @@ public class IfSimplificationTest extends SmaliTestBase {
         "  const v0, 1",
         "  goto :label_2");
     DexCode code = method.getCode().asDexCode();
-    assertEquals(2, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof Const4);
-    assertEquals(0, ((Const4) code.instructions[0]).B);
-    assertTrue(code.instructions[1] instanceof Return);
+    assertEquals(2, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof Const4);
+    assertEquals(0, ((Const4) code.getInstructions()[0]).B);
+    assertTrue(code.getInstructions()[1] instanceof Return);
   }
 
   @Test
@@ -256,11 +256,11 @@ public class IfSimplificationTest extends SmaliTestBase {
             "  const v0, 1",
             "  goto :label_1");
         DexCode code = method.getCode().asDexCode();
-        assertEquals(2, code.instructions.length);
-        assertTrue(code.instructions[0] instanceof Const4);
+        assertEquals(2, code.getInstructions().length);
+        assertTrue(code.getInstructions()[0] instanceof Const4);
         int expected = test.results[type.ordinal()] ? 1 : 0;
-        assertEquals(expected, ((Const4) code.instructions[0]).B);
-        assertTrue(code.instructions[1] instanceof Return);
+        assertEquals(expected, ((Const4) code.getInstructions()[0]).B);
+        assertTrue(code.getInstructions()[1] instanceof Return);
       }
     }
   }
@@ -286,9 +286,9 @@ public class IfSimplificationTest extends SmaliTestBase {
         "  const v0, 1",
         "  goto :label_1");
     DexCode code = method.getCode().asDexCode();
-    assertEquals(5, code.instructions.length);
-    assertTrue(expected.isInstance(code.instructions[0]));
-    assertTrue(code.instructions[4] instanceof Return);
+    assertEquals(5, code.getInstructions().length);
+    assertTrue(expected.isInstance(code.getInstructions()[0]));
+    assertTrue(code.getInstructions()[4] instanceof Return);
   }
 
   @Test
@@ -390,11 +390,11 @@ public class IfSimplificationTest extends SmaliTestBase {
         "          goto                :label_7"
     );
     DexCode code = method.getCode().asDexCode();
-    assertEquals(3, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof InvokeVirtual);
-    assertTrue(code.instructions[1] instanceof Const4);
-    assertEquals(0, ((Const4) code.instructions[1]).B);
-    assertTrue(code.instructions[2] instanceof ReturnObject);
+    assertEquals(3, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof InvokeVirtual);
+    assertTrue(code.getInstructions()[1] instanceof Const4);
+    assertEquals(0, ((Const4) code.getInstructions()[1]).B);
+    assertTrue(code.getInstructions()[2] instanceof ReturnObject);
   }
 
   @Test
@@ -443,6 +443,6 @@ public class IfSimplificationTest extends SmaliTestBase {
     DexCode code = method.getCode().asDexCode();
     // TODO(sgjesse): Maybe this test is too fragile, as it leaves quite a lot of code, so the
     // expectation might need changing with other optimizations.
-    assertEquals(27, code.instructions.length);
+    assertEquals(27, code.getInstructions().length);
   }
 }
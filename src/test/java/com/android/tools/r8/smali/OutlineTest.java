@@ -138,9 +138,9 @@ public class OutlineTest extends SmaliTestBase {
       DexEncodedMethod method = getMethod(processedApplication, signature);
 
       DexCode code = method.getCode().asDexCode();
-      assertTrue(code.instructions[0] instanceof ConstString);
-      assertTrue(code.instructions[1] instanceof InvokeStatic);
-      InvokeStatic invoke = (InvokeStatic) code.instructions[1];
+      assertTrue(code.getInstructions()[0] instanceof ConstString);
+      assertTrue(code.getInstructions()[1] instanceof InvokeStatic);
+      InvokeStatic invoke = (InvokeStatic) code.getInstructions()[1];
       assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
 
       // Run code and check result.
@@ -207,10 +207,10 @@ public class OutlineTest extends SmaliTestBase {
       // Up to 4 const instructions before the invoke of the outline.
       int firstOutlineInvoke = Math.min(i, 4);
       for (int j = 0; j < firstOutlineInvoke; j++) {
-        assertTrue(code.instructions[j] instanceof ConstString);
+        assertTrue(code.getInstructions()[j] instanceof ConstString);
       }
-      assertTrue(code.instructions[firstOutlineInvoke] instanceof InvokeStatic);
-      InvokeStatic invoke = (InvokeStatic) code.instructions[firstOutlineInvoke];
+      assertTrue(code.getInstructions()[firstOutlineInvoke] instanceof InvokeStatic);
+      InvokeStatic invoke = (InvokeStatic) code.getInstructions()[firstOutlineInvoke];
       assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
 
       // Run code and check result.
@@ -266,9 +266,9 @@ public class OutlineTest extends SmaliTestBase {
     DexEncodedMethod method = getMethod(processedApplication, signature);
 
     DexCode code = method.getCode().asDexCode();
-    assertTrue(code.instructions[0] instanceof ConstString);
-    assertTrue(code.instructions[1] instanceof InvokeStatic);
-    InvokeStatic invoke = (InvokeStatic) code.instructions[1];
+    assertTrue(code.getInstructions()[0] instanceof ConstString);
+    assertTrue(code.getInstructions()[1] instanceof InvokeStatic);
+    InvokeStatic invoke = (InvokeStatic) code.getInstructions()[1];
     assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
 
     // Run code and check result.
@@ -330,10 +330,10 @@ public class OutlineTest extends SmaliTestBase {
     DexEncodedMethod method = getMethod(processedApplication, signature);
 
     DexCode code = method.getCode().asDexCode();
-    assertTrue(code.instructions[0] instanceof ConstString);
-    assertTrue(code.instructions[1] instanceof ConstString);
-    assertTrue(code.instructions[2] instanceof InvokeStatic);
-    InvokeStatic invoke = (InvokeStatic) code.instructions[2];
+    assertTrue(code.getInstructions()[0] instanceof ConstString);
+    assertTrue(code.getInstructions()[1] instanceof ConstString);
+    assertTrue(code.getInstructions()[2] instanceof InvokeStatic);
+    InvokeStatic invoke = (InvokeStatic) code.getInstructions()[2];
     assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
 
     // Run code and check result.
@@ -392,16 +392,16 @@ public class OutlineTest extends SmaliTestBase {
       DexEncodedMethod method = getMethod(processedApplication, signature);
 
       DexCode code = method.getCode().asDexCode();
-      assertTrue(code.instructions[0] instanceof ConstWide);
+      assertTrue(code.getInstructions()[0] instanceof ConstWide);
       if (i < 3) {
-        assertTrue(code.instructions[1] instanceof InvokeStatic);
-        InvokeStatic invoke = (InvokeStatic) code.instructions[1];
+        assertTrue(code.getInstructions()[1] instanceof InvokeStatic);
+        InvokeStatic invoke = (InvokeStatic) code.getInstructions()[1];
         assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
       } else {
-        assertTrue(code.instructions[1] instanceof InvokeVirtual);
-        assertTrue(code.instructions[2] instanceof InvokeVirtual);
-        assertTrue(code.instructions[3] instanceof InvokeStatic);
-        InvokeStatic invoke = (InvokeStatic) code.instructions[3];
+        assertTrue(code.getInstructions()[1] instanceof InvokeVirtual);
+        assertTrue(code.getInstructions()[2] instanceof InvokeVirtual);
+        assertTrue(code.getInstructions()[3] instanceof InvokeStatic);
+        InvokeStatic invoke = (InvokeStatic) code.getInstructions()[3];
         assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
       }
 
@@ -466,16 +466,16 @@ public class OutlineTest extends SmaliTestBase {
       DexEncodedMethod method = getMethod(processedApplication, signature);
 
       DexCode code = method.getCode().asDexCode();
-      assertTrue(code.instructions[0] instanceof ConstWideHigh16);
+      assertTrue(code.getInstructions()[0] instanceof ConstWideHigh16);
       if (i < 3) {
-        assertTrue(code.instructions[1] instanceof InvokeStatic);
-        InvokeStatic invoke = (InvokeStatic) code.instructions[1];
+        assertTrue(code.getInstructions()[1] instanceof InvokeStatic);
+        InvokeStatic invoke = (InvokeStatic) code.getInstructions()[1];
         assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
       } else {
-        assertTrue(code.instructions[1] instanceof InvokeVirtual);
-        assertTrue(code.instructions[2] instanceof InvokeVirtual);
-        assertTrue(code.instructions[3] instanceof InvokeStatic);
-        InvokeStatic invoke = (InvokeStatic) code.instructions[3];
+        assertTrue(code.getInstructions()[1] instanceof InvokeVirtual);
+        assertTrue(code.getInstructions()[2] instanceof InvokeVirtual);
+        assertTrue(code.getInstructions()[3] instanceof InvokeStatic);
+        InvokeStatic invoke = (InvokeStatic) code.getInstructions()[3];
         assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
       }
 
@@ -537,22 +537,22 @@ public class OutlineTest extends SmaliTestBase {
       DexCode mainCode = mainMethod.getCode().asDexCode();
 
       if (i == 2 || i == 3) {
-        assert mainCode.instructions.length == 10;
+        assert mainCode.getInstructions().length == 10;
       } else if (i == 4) {
-        assert mainCode.instructions.length == 9;
+        assert mainCode.getInstructions().length == 9;
       } else {
         assert i == 5;
-        assert mainCode.instructions.length == 7;
+        assert mainCode.getInstructions().length == 7;
       }
       if (i == 2) {
-        InvokeStatic invoke = (InvokeStatic) mainCode.instructions[4];
+        InvokeStatic invoke = (InvokeStatic) mainCode.getInstructions()[4];
         assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
       } else if (i == 3) {
-        InvokeStatic invoke = (InvokeStatic) mainCode.instructions[1];
+        InvokeStatic invoke = (InvokeStatic) mainCode.getInstructions()[1];
         assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
       } else {
         assert i == 4 || i == 5;
-        InvokeStatic invoke = (InvokeStatic) mainCode.instructions[2];
+        InvokeStatic invoke = (InvokeStatic) mainCode.getInstructions()[2];
         assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
       }
 
@@ -631,15 +631,15 @@ public class OutlineTest extends SmaliTestBase {
     assertEquals(2, Iterables.size(processedApplication.classes()));
 
     DexCode code1 = getMethod(processedApplication, signature1).getCode().asDexCode();
-    assertEquals(4, code1.instructions.length);
-    assertTrue(code1.instructions[1] instanceof InvokeStatic);
-    InvokeStatic invoke1 = (InvokeStatic) code1.instructions[1];
+    assertEquals(4, code1.getInstructions().length);
+    assertTrue(code1.getInstructions()[1] instanceof InvokeStatic);
+    InvokeStatic invoke1 = (InvokeStatic) code1.getInstructions()[1];
     assertTrue(isOutlineMethodName(options, invoke1.getMethod().qualifiedName()));
 
     DexCode code2 = getMethod(processedApplication, signature2).getCode().asDexCode();
-    assertEquals(5, code2.instructions.length);
-    assertTrue(code2.instructions[2] instanceof InvokeStatic);
-    InvokeStatic invoke2 = (InvokeStatic) code2.instructions[2];
+    assertEquals(5, code2.getInstructions().length);
+    assertTrue(code2.getInstructions()[2] instanceof InvokeStatic);
+    InvokeStatic invoke2 = (InvokeStatic) code2.getInstructions()[2];
     assertTrue(isOutlineMethodName(options, invoke1.getMethod().qualifiedName()));
 
     // Run code and check result.
@@ -708,7 +708,7 @@ public class OutlineTest extends SmaliTestBase {
         default:
           outlineInstructionIndex = 2;
       }
-      invoke = (InvokeStatic) code.instructions[outlineInstructionIndex];
+      invoke = (InvokeStatic) code.getInstructions()[outlineInstructionIndex];
       assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
 
       // Run code and check result.
@@ -753,8 +753,8 @@ public class OutlineTest extends SmaliTestBase {
 
     DexCode code = getMethod(processedApplication, signature1).getCode().asDexCode();
     InvokeStatic invoke;
-    assertTrue(code.instructions[0] instanceof InvokeStatic);
-    invoke = (InvokeStatic) code.instructions[0];
+    assertTrue(code.getInstructions()[0] instanceof InvokeStatic);
+    invoke = (InvokeStatic) code.getInstructions()[0];
     assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
 
     // Run code and check result.
@@ -832,7 +832,7 @@ public class OutlineTest extends SmaliTestBase {
     // Collect the return types of the putlines for the body of method1 and method2.
     List<DexType> r = new ArrayList<>();
     for (int i = 0; i < clazz.getDexClass().directMethods().length; i++) {
-      if (clazz.getDexClass().directMethods()[i].getCode().asDexCode().instructions[0]
+      if (clazz.getDexClass().directMethods()[i].getCode().asDexCode().getInstructions()[0]
           instanceof InvokeVirtual) {
         r.add(clazz.getDexClass().directMethods()[i].method.proto.returnType);
       }
@@ -849,6 +849,83 @@ public class OutlineTest extends SmaliTestBase {
     assertEquals("TestTestTestTest", result);
   }
 
+  @Test
+  public void outlineAppliedAfterRegisterAllocation() {
+    SmaliBuilder builder = new SmaliBuilder(DEFAULT_CLASS_NAME);
+
+    // The same sequence in two methods with different registers. The outline is identified before
+    // register allocation, and must still apply to the code after register allocation.
+    MethodSignature signature1 = builder.addStaticMethod(
+        "java.lang.String",
+        "method1",
+        Collections.singletonList("java.lang.StringBuilder"),
+        2,
+        "    const-string        v1, \"Test\"",
+        "    invoke-virtual      { p0, v1 }, Ljava/lang/StringBuilder;->append(Ljava/lang/String;)Ljava/lang/StringBuilder;",
+        "    move-result-object  v0",
+        "    invoke-virtual      { v0, v1 }, Ljava/lang/StringBuilder;->append(Ljava/lang/String;)Ljava/lang/StringBuilder;",
+        "    move-result-object  v0",
+        "    invoke-virtual      { v0 }, Ljava/lang/StringBuilder;->toString()Ljava/lang/String;",
+        "    move-result-object  v0",
+        "    return-object       v0"
+    );
+    MethodSignature signature2 = builder.addStaticMethod(
+        "java.lang.String",
+        "method2",
+        ImmutableList.of("int", "java.lang.StringBuilder"),
+        4,
+        "    const-string        v3, \"Test\"",
+        "    invoke-virtual      { p1, v3 }, Ljava/lang/StringBuilder;->append(Ljava/lang/String;)Ljava/lang/StringBuilder;",
+        "    move-result-object  v2",
+        "    invoke-virtual      { v2, v3 }, Ljava/lang/StringBuilder;->append(Ljava/lang/String;)Ljava/lang/StringBuilder;",
+        "    move-result-object  v2",
+        "    invoke-virtual      { v2 }, Ljava/lang/StringBuilder;->toString()Ljava/lang/String;",
+        "    move-result-object  v1",
+        "    return-object       v1"
+    );
+
+    builder.addMainMethod(
+        3,
+        "    sget-object         v0, Ljava/lang/System;->out:Ljava/io/PrintStream;",
+        "    new-instance        v1, Ljava/lang/StringBuilder;",
+        "    invoke-direct       { v1 }, Ljava/lang/StringBuilder;-><init>()V",
+        "    invoke-static       { v1 }, LTest;->method1(Ljava/lang/StringBuilder;)Ljava/lang/String;",
+        "    move-result-object  v1",
+        "    invoke-virtual      { v0, v1 }, Ljava/io/PrintStream;->print(Ljava/lang/String;)V",
+        "    const/4             v2, 1",
+        "    new-instance        v1, Ljava/lang/StringBuilder;",
+        "    invoke-direct       { v1 }, Ljava/lang/StringBuilder;-><init>()V",
+        "    invoke-static       { v2, v1 }, LTest;->method2(ILjava/lang/StringBuilder;)Ljava/lang/String;",
+        "    move-result-object  v1",
+        "    invoke-virtual      { v0, v1 }, Ljava/io/PrintStream;->print(Ljava/lang/String;)V",
+        "    return-void"
+    );
+
+    InternalOptions options = createInternalOptions();
+    options.outline.threshold = 2;
+    options.outline.minSize = 3;
+    options.outline.maxSize = 3;
+
+    DexApplication originalApplication = buildApplicationWithAndroidJar(builder, options);
+    DexApplication processedApplication = processApplication(originalApplication, options);
+    assertEquals(2, Iterables.size(processedApplication.classes()));
+
+    // Both methods call the outline, and the outline class only has the applied outline.
+    DexInspector inspector = new DexInspector(processedApplication);
+    ClassSubject outlineClass = inspector.clazz(options.outline.className);
+    assertTrue(outlineClass.isPresent());
+    assertEquals(1, outlineClass.getDexClass().directMethods().length);
+    for (MethodSignature signature : ImmutableList.of(signature1, signature2)) {
+      DexCode code = getMethod(processedApplication, signature).getCode().asDexCode();
+      List<InvokeStatic> invokes = Arrays.stream(code.getInstructions())
+          .filter(instruction -> instruction instanceof InvokeStatic)
+          .map(instruction -> (InvokeStatic) instruction)
+          .collect(Collectors.toList());
+      assertEquals(1, invokes.size());
+      assertEquals(firstOutlineMethodName(options), invokes.get(0).getMethod().qualifiedName());
+    }
+  }
+
   @Test
   public void outlineMultipleTimes() {
     SmaliBuilder builder = new SmaliBuilder(DEFAULT_CLASS_NAME);
@@ -963,11 +1040,11 @@ public class OutlineTest extends SmaliTestBase {
     DexEncodedMethod method = getMethod(processedApplication, signature);
     // The calls to set, set and getTimeInMillis was outlined.
     DexCode code = method.getCode().asDexCode();
-    assertEquals(3, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof InvokeStatic);
-    assertTrue(code.instructions[1] instanceof MoveResultWide);
-    assertTrue(code.instructions[2] instanceof ReturnWide);
-    InvokeStatic invoke = (InvokeStatic) code.instructions[0];
+    assertEquals(3, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof InvokeStatic);
+    assertTrue(code.getInstructions()[1] instanceof MoveResultWide);
+    assertTrue(code.getInstructions()[2] instanceof ReturnWide);
+    InvokeStatic invoke = (InvokeStatic) code.getInstructions()[0];
     assertEquals(firstOutlineMethodName(options), invoke.getMethod().qualifiedName());
 
     // Run the code and expect a parsable long.
@@ -1022,10 +1099,10 @@ public class OutlineTest extends SmaliTestBase {
     // Return the processed method for inspection.
     DexEncodedMethod method = getMethod(processedApplication, signature);
     DexCode code = method.getCode().asDexCode();
-    assertEquals(2, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof InvokeStatic);
-    assertTrue(code.instructions[1] instanceof ReturnObject);
-    InvokeStatic invoke = (InvokeStatic) code.instructions[0];
+    assertEquals(2, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof InvokeStatic);
+    assertTrue(code.getInstructions()[1] instanceof ReturnObject);
+    InvokeStatic invoke = (InvokeStatic) code.getInstructions()[0];
     assertEquals(firstOutlineMethodName(options), invoke.getMethod().qualifiedName());
 
     // Run code and check result.
@@ -1096,17 +1173,17 @@ public class OutlineTest extends SmaliTestBase {
     // Return the processed method for inspection.
     DexEncodedMethod method1 = getMethod(processedApplication, signature1);
     DexCode code1 = method1.getCode().asDexCode();
-    assertEquals(3, code1.instructions.length);
-    assertTrue(code1.instructions[0] instanceof InvokeStatic);
-    assertTrue(code1.instructions[1] instanceof MoveResult);
-    assertTrue(code1.instructions[2] instanceof Return);
-    InvokeStatic invoke1 = (InvokeStatic) code1.instructions[0];
+    assertEquals(3, code1.getInstructions().length);
+    assertTrue(code1.getInstructions()[0] instanceof InvokeStatic);
+    assertTrue(code1.getInstructions()[1] instanceof MoveResult);
+    assertTrue(code1.getInstructions()[2] instanceof Return);
+    InvokeStatic invoke1 = (InvokeStatic) code1.getInstructions()[0];
     assertTrue(isOutlineMethodName(options, invoke1.getMethod().qualifiedName()));
 
     DexEncodedMethod method2 = getMethod(processedApplication, signature2);
     DexCode code2 = method2.getCode().asDexCode();
-    assertTrue(code2.instructions[0] instanceof InvokeStatic);
-    InvokeStatic invoke2 = (InvokeStatic) code2.instructions[0];
+    assertTrue(code2.getInstructions()[0] instanceof InvokeStatic);
+    InvokeStatic invoke2 = (InvokeStatic) code2.getInstructions()[0];
     assertEquals(invoke1.getMethod().qualifiedName(), invoke2.getMethod().qualifiedName());
 
     // Run code and check result.
@@ -1171,15 +1248,15 @@ public class OutlineTest extends SmaliTestBase {
     // Return the processed method for inspection.
     DexEncodedMethod method = getMethod(processedApplication, signature);
     DexCode code = method.getCode().asDexCode();
-    assertEquals(7, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof DivInt);
-    assertTrue(code.instructions[1] instanceof InvokeStatic);
-    assertTrue(code.instructions[2] instanceof MoveResult);
-    assertTrue(code.instructions[3] instanceof DivInt);
-    assertTrue(code.instructions[4] instanceof Return);
-    assertTrue(code.instructions[5] instanceof Const4);
-    assertTrue(code.instructions[6] instanceof Return);
-    InvokeStatic invoke = (InvokeStatic) code.instructions[1];
+    assertEquals(7, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof DivInt);
+    assertTrue(code.getInstructions()[1] instanceof InvokeStatic);
+    assertTrue(code.getInstructions()[2] instanceof MoveResult);
+    assertTrue(code.getInstructions()[3] instanceof DivInt);
+    assertTrue(code.getInstructions()[4] instanceof Return);
+    assertTrue(code.getInstructions()[5] instanceof Const4);
+    assertTrue(code.getInstructions()[6] instanceof Return);
+    InvokeStatic invoke = (InvokeStatic) code.getInstructions()[1];
     assertTrue(isOutlineMethodName(options, invoke.getMethod().qualifiedName()));
 
     // Run code and check result.
@@ -1223,10 +1300,10 @@ public class OutlineTest extends SmaliTestBase {
     // Return the processed method for inspection.
     DexEncodedMethod method = getMethod(processedApplication, signature);
     DexCode code = method.getCode().asDexCode();
-    assertEquals(2, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof InvokeStatic);
-    assertTrue(code.instructions[1] instanceof ReturnVoid);
-    InvokeStatic invoke = (InvokeStatic) code.instructions[0];
+    assertEquals(2, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof InvokeStatic);
+    assertTrue(code.getInstructions()[1] instanceof ReturnVoid);
+    InvokeStatic invoke = (InvokeStatic) code.getInstructions()[0];
     assertEquals(firstOutlineMethodName(options), invoke.getMethod().qualifiedName());
 
     // Run code and check result.
@@ -1268,10 +1345,10 @@ public class OutlineTest extends SmaliTestBase {
     // Return the processed method for inspection.
     DexEncodedMethod method = getMethod(processedApplication, signature);
     DexCode code = method.getCode().asDexCode();
-    assertEquals(2, code.instructions.length);
-    assertTrue(code.instructions[0] instanceof InvokeStatic);
-    assertTrue(code.instructions[1] instanceof ReturnVoid);
-    InvokeStatic invoke = (InvokeStatic) code.instructions[0];
+    assertEquals(2, code.getInstructions().length);
+    assertTrue(code.getInstructions()[0] instanceof InvokeStatic);
+    assertTrue(code.getInstructions()[1] instanceof ReturnVoid);
+    InvokeStatic invoke = (InvokeStatic) code.getInstructions()[0];
     assertEquals(firstOutlineMethodName(options), invoke.getMethod().qualifiedName());
 
     // Run code and check result.
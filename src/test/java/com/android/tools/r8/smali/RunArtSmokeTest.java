@@ -42,10 +42,10 @@ public class RunArtSmokeTest extends SmaliTestBase {
     assert main != null;
 
     DexCode code = main.getCode().asDexCode();
-    assertTrue(code.instructions[0] instanceof SgetObject);
-    assertTrue(code.instructions[1] instanceof ConstString);
-    assertTrue(code.instructions[2] instanceof InvokeVirtual);
-    assertTrue(code.instructions[3] instanceof ReturnVoid);
+    assertTrue(code.getInstructions()[0] instanceof SgetObject);
+    assertTrue(code.getInstructions()[1] instanceof ConstString);
+    assertTrue(code.getInstructions()[2] instanceof InvokeVirtual);
+    assertTrue(code.getInstructions()[3] instanceof ReturnVoid);
 
     // Run the generated code in Art.
     String result = runArt(processedApplication, options);
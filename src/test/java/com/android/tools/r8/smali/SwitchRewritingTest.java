@@ -94,12 +94,12 @@ public class SwitchRewritingTest extends SmaliTestBase {
     DexCode code = method.getCode().asDexCode();
 
     if (key == 0) {
-      assertEquals(5, code.instructions.length);
-      assertTrue(code.instructions[0] instanceof IfEqz);
+      assertEquals(5, code.getInstructions().length);
+      assertTrue(code.getInstructions()[0] instanceof IfEqz);
     } else {
-      assertEquals(6, code.instructions.length);
-      assertTrue(some16BitConst(code.instructions[0]));
-      assertTrue(code.instructions[1] instanceof IfEq);
+      assertEquals(6, code.getInstructions().length);
+      assertTrue(some16BitConst(code.getInstructions()[0]));
+      assertTrue(code.getInstructions()[1] instanceof IfEq);
     }
   }
 
@@ -154,9 +154,9 @@ public class SwitchRewritingTest extends SmaliTestBase {
     DexEncodedMethod method = getMethod(processedApplication, signature);
     DexCode code = method.getCode().asDexCode();
     if (twoCaseWillUsePackedSwitch(key1, key2)) {
-      assertTrue(code.instructions[0] instanceof PackedSwitch);
+      assertTrue(code.getInstructions()[0] instanceof PackedSwitch);
     } else {
-      assertTrue(code.instructions[0] instanceof SparseSwitch);
+      assertTrue(code.getInstructions()[0] instanceof SparseSwitch);
     }
   }
 
@@ -226,9 +226,9 @@ public class SwitchRewritingTest extends SmaliTestBase {
     DexEncodedMethod method = getMethod(processedApplication, signature);
     DexCode code = method.getCode().asDexCode();
     if (keyStep <= 2) {
-      assertTrue(code.instructions[0] instanceof PackedSwitch);
+      assertTrue(code.getInstructions()[0] instanceof PackedSwitch);
     } else {
-      assertTrue(code.instructions[0] instanceof SparseSwitch);
+      assertTrue(code.getInstructions()[0] instanceof SparseSwitch);
     }
   }
 
@@ -295,12 +295,12 @@ public class SwitchRewritingTest extends SmaliTestBase {
     DexEncodedMethod method = getMethod(app, signature);
     DexCode code = method.getCode().asDexCode();
     if (key == 0) {
-      assertEquals(5, code.instructions.length);
-      assertTrue(code.instructions[2] instanceof IfEqz);
+      assertEquals(5, code.getInstructions().length);
+      assertTrue(code.getInstructions()[2] instanceof IfEqz);
     } else {
-      assertEquals(6, code.instructions.length);
-      assertTrue(some16BitConst(code.instructions[2]));
-      assertTrue(code.instructions[3] instanceof IfEq);
+      assertEquals(6, code.getInstructions().length);
+      assertTrue(some16BitConst(code.getInstructions()[2]));
+      assertTrue(code.getInstructions()[3] instanceof IfEq);
     }
   }
 
@@ -354,9 +354,9 @@ public class SwitchRewritingTest extends SmaliTestBase {
     DexEncodedMethod method = getMethod(app, signature);
     DexCode code = method.getCode().asDexCode();
     if (twoCaseWillUsePackedSwitch(key1, key2)) {
-      assertTrue(code.instructions[3] instanceof PackedSwitch);
+      assertTrue(code.getInstructions()[3] instanceof PackedSwitch);
     } else {
-      assertTrue(code.instructions[3] instanceof SparseSwitch);
+      assertTrue(code.getInstructions()[3] instanceof SparseSwitch);
     }
   }
 
@@ -428,7 +428,7 @@ public class SwitchRewritingTest extends SmaliTestBase {
     DexCode code = method.getCode().asDexCode();
     int packedSwitchCount = 0;
     int sparseSwitchCount = 0;
-    for (Instruction instruction : code.instructions) {
+    for (Instruction instruction : code.getInstructions()) {
       if (instruction instanceof PackedSwitch) {
         packedSwitchCount++;
       }
@@ -502,7 +502,7 @@ public class SwitchRewritingTest extends SmaliTestBase {
     int packedSwitches = 0;
     int sparseSwitches = 0;
     int ifs = 0;
-    for (Instruction instruction : code.instructions) {
+    for (Instruction instruction : code.getInstructions()) {
       if (instruction instanceof PackedSwitch) {
         packedSwitches++;
       }
@@ -1116,15 +1116,15 @@ public class DexInspector {
 
     @Override
     public boolean hasNext() {
-      return index < code.instructions.length;
+      return index < code.getInstructions().length;
     }
 
     @Override
     public InstructionSubject next() {
-      if (index == code.instructions.length) {
+      if (index == code.getInstructions().length) {
         throw new NoSuchElementException();
       }
-      return factory.create(code.instructions[index++]);
+      return factory.create(code.getInstructions()[index++]);
     }
   }
 
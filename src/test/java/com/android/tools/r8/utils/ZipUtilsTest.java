@@ -0,0 +1,116 @@
+// Copyright (c) 2017, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.android.tools.r8.ToolHelper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ZipUtilsTest {
+
+  @Rule
+  public TemporaryFolder temp = ToolHelper.getTemporaryFolderForTest();
+
+  private static final List<String> NAMES =
+      ImmutableList.of("classes.dex", "classes2.dex", "com/example/Test.dex", "empty.dex");
+
+  private static List<byte[]> contents() {
+    // Larger than the data that is kept in memory for an entry, when stored uncompressed.
+    byte[] large = new byte[(1 << 20) + 200000];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (byte) (i % 251);
+    }
+    return ImmutableList.of(
+        "first".getBytes(StandardCharsets.UTF_8), large, new byte[] {0, 1, 2}, new byte[0]);
+  }
+
+  private static List<ZipUtils.EntryContent> entryContents() {
+    List<ZipUtils.EntryContent> entryContents = new ArrayList<>();
+    for (byte[] content : contents()) {
+      entryContents.add(() -> new ByteArrayInputStream(content));
+    }
+    return entryContents;
+  }
+
+  private void checkArchive(Path archive, int method) throws IOException {
+    List<byte[]> contents = contents();
+    try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+      assertEquals(NAMES.size(), zipFile.size());
+      for (int i = 0; i < NAMES.size(); i++) {
+        ZipEntry entry = zipFile.getEntry(NAMES.get(i));
+        assertEquals(method, entry.getMethod());
+        assertEquals(contents.get(i).length, entry.getSize());
+        assertArrayEquals(
+            contents.get(i), ByteStreams.toByteArray(zipFile.getInputStream(entry)));
+      }
+    }
+    // Also read the archive through the local headers, as ZipInputStream does.
+    try (ZipInputStream input = new ZipInputStream(Files.newInputStream(archive))) {
+      for (int i = 0; i < NAMES.size(); i++) {
+        assertEquals(NAMES.get(i), input.getNextEntry().getName());
+        assertArrayEquals(contents.get(i), ByteStreams.toByteArray(input));
+      }
+      assertNull(input.getNextEntry());
+    }
+  }
+
+  @Test
+  public void writeDeflatedArchive() throws IOException {
+    Path archive = temp.getRoot().toPath().resolve("deflated.zip");
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      ZipUtils.writeArchive(archive, NAMES, entryContents(), true, executor);
+    } finally {
+      executor.shutdown();
+    }
+    checkArchive(archive, ZipEntry.DEFLATED);
+  }
+
+  @Test
+  public void writeStoredArchive() throws IOException {
+    Path archive = temp.getRoot().toPath().resolve("stored.zip");
+    ZipUtils.writeArchive(archive, NAMES, entryContents(), false, null);
+    checkArchive(archive, ZipEntry.STORED);
+  }
+
+  @Test
+  public void failingEntryThrowsItsIOException() {
+    Path archive = temp.getRoot().toPath().resolve("failing.zip");
+    List<ZipUtils.EntryContent> entryContents = new ArrayList<>(entryContents());
+    IOException failure = new IOException("Cannot read entry");
+    entryContents.set(1, () -> {
+      throw failure;
+    });
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      ZipUtils.writeArchive(archive, NAMES, entryContents, true, executor);
+      fail("Expected the failure of the entry to be rethrown");
+    } catch (IOException e) {
+      assertSame(failure, e);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}